@@ -0,0 +1,23 @@
+package io.github.radbuilder.emojichat.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the EmojiChat benchmarks. Accepts the usual JMH command line options, and always adds the GC profiler so every
+ * result comes with the bytes allocated per operation ({@code gc.alloc.rate.norm}).
+ * <p>
+ * Usage: {@code java -jar benchmarks/target/benchmarks.jar [JMH options]}
+ *
+ * @author RadBuilder
+ * @version 1.8.1
+ * @since 1.8.1
+ */
+public class BenchmarkRunner {
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+		new Runner(new OptionsBuilder().parent(commandLineOptions).addProfiler(GCProfiler.class).build()).run();
+	}
+}
@@ -0,0 +1,80 @@
+package io.github.radbuilder.emojichat.benchmarks;
+
+import io.github.radbuilder.emojichat.utils.EmojiTable;
+import io.github.radbuilder.emojichat.utils.TranslationMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the chat translation path ({@code toEmojiFromChat}), with {@code fix-emoji-coloring} on and off, and
+ * with the translation cache on for a message that keeps coming back.
+ *
+ * @author RadBuilder
+ * @version 1.8.1
+ * @since 1.8.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatTranslationBenchmark {
+	/**
+	 * The message shape to translate.
+	 */
+	@Param({MessageShapes.NONE, MessageShapes.SHORTCUTS, MessageShapes.DENSE, MessageShapes.LONG, MessageShapes.COLORED, MessageShapes.UNICODE})
+	public String shape;
+	/**
+	 * The fix-emoji-coloring setting.
+	 */
+	@Param({"false", "true"})
+	public boolean fixColoring;
+	
+	/**
+	 * The emoji table.
+	 */
+	private EmojiTable table;
+	/**
+	 * The emoji table, with the translation cache on.
+	 */
+	private EmojiTable cachedTable;
+	/**
+	 * The message to translate.
+	 */
+	private String message;
+	
+	@Setup
+	public void setup() throws IOException {
+		table = MessageShapes.table(fixColoring);
+		cachedTable = table.withCacheSize(1024);
+		message = MessageShapes.message(shape);
+	}
+	
+	@Benchmark
+	public String toEmojiFromChat() {
+		return table.translate(message, TranslationMode.CHAT, false);
+	}
+	
+	@Benchmark
+	public String translateChatWithShortcuts() {
+		return table.translate(message, TranslationMode.CHAT, true);
+	}
+	
+	@Benchmark
+	public String translateChatCached() {
+		return cachedTable.translate(message, TranslationMode.CHAT, true);
+	}
+}
@@ -0,0 +1,118 @@
+package io.github.radbuilder.emojichat.benchmarks;
+
+import io.github.radbuilder.emojichat.utils.EmojiIndex;
+import io.github.radbuilder.emojichat.utils.EmojiTable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+
+/**
+ * Realistic chat message shapes and emoji tables for the benchmarks.
+ *
+ * @author RadBuilder
+ * @version 1.8.1
+ * @since 1.8.1
+ */
+final class MessageShapes {
+	/**
+	 * A message without any emojis.
+	 */
+	static final String NONE = "none";
+	/**
+	 * A message with a few shortcuts.
+	 */
+	static final String SHORTCUTS = "shortcuts";
+	/**
+	 * A message that's mostly emojis.
+	 */
+	static final String DENSE = "dense";
+	/**
+	 * A long message with a couple of emojis.
+	 */
+	static final String LONG = "long";
+	/**
+	 * A message prefixed with a chat color.
+	 */
+	static final String COLORED = "colored";
+	/**
+	 * A message with Unicode emojis, as typed on a phone keyboard.
+	 */
+	static final String UNICODE = "unicode";
+	
+	private MessageShapes() {
+	}
+	
+	/**
+	 * Gets the message for the specified shape.
+	 *
+	 * @param shape The message shape.
+	 * @return The message.
+	 */
+	static String message(String shape) {
+		switch (shape) {
+			case NONE: // The most common chat line
+				return "anyone up for the nether fortress run later? bring food and a spare pickaxe";
+			case SHORTCUTS:
+				return "gg :) that was close <3 see you tomorrow ;)";
+			case DENSE:
+				return ":100::fire: :joy::joy::joy: :heart::heart: :ok_hand: :skull: :eyes: :clap::clap: :pray: :wave:";
+			case LONG: // The emojis are near the end
+				StringBuilder builder = new StringBuilder();
+				for (int i = 0; i < 5; i++) {
+					builder.append("so we went down the ravine and found a spawner next to the lava lake, ");
+				}
+				return builder.append("then everything burned :fire: :sob:").toString();
+			case COLORED: // As sent by chat color plugins
+				return "§awelcome back :wave: the shop is open again :) :sunglasses:";
+			case UNICODE: // With a variation selector, a skin tone and a ZWJ sequence
+				return "lol 😂😂 nice build ❤️ thanks 👍🏽 gg ❤️‍🔥";
+			default:
+				throw new IllegalArgumentException("Unknown message shape '" + shape + "'");
+		}
+	}
+	
+	/**
+	 * Builds an emoji table from the bundled emoji index and the default config shortcuts.
+	 *
+	 * @param fixColoring If emoji coloring should be fixed.
+	 * @return The emoji table.
+	 * @throws IOException If the bundled resources can't be read.
+	 */
+	static EmojiTable table(boolean fixColoring) throws IOException {
+		return new EmojiTable(EmojiIndex.loadBundled(), defaultShortcuts(), fixColoring);
+	}
+	
+	/**
+	 * Reads the default shortcuts from shortcuts.yml, a copy of the shortcuts section of the plugin's default config.
+	 * It only uses the simple {@code key:} / {@code - 'shortcut'} layout, so this doesn't need a YAML parser.
+	 *
+	 * @return The default shortcuts, mapped to the emoji name they stand for.
+	 * @throws IOException If shortcuts.yml can't be read.
+	 */
+	static LinkedHashMap<String, String> defaultShortcuts() throws IOException {
+		LinkedHashMap<String, String> shortcuts = new LinkedHashMap<>();
+		InputStream input = MessageShapes.class.getResourceAsStream("/shortcuts.yml");
+		if (input == null) {
+			throw new IOException("shortcuts.yml isn't bundled with the benchmarks");
+		}
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+			boolean inShortcuts = false;
+			String key = null;
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (!line.startsWith(" ")) {
+					inShortcuts = line.equals("shortcuts:");
+				} else if (inShortcuts && line.startsWith("  - '")) {
+					shortcuts.put(line.substring(5, line.length() - 1), ":" + key + ":");
+				} else if (inShortcuts && line.endsWith(":")) {
+					key = line.trim().substring(0, line.trim().length() - 1);
+				}
+			}
+		}
+		return shortcuts;
+	}
+}
@@ -0,0 +1,75 @@
+package io.github.radbuilder.emojichat.benchmarks;
+
+import io.github.radbuilder.emojichat.utils.EmojiIndex;
+import io.github.radbuilder.emojichat.utils.EmojiTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for compiling the emoji table on a reload: compiling everything, compiling only changed shortcuts, and
+ * a reload where nothing changed.
+ *
+ * @author RadBuilder
+ * @version 1.8.1
+ * @since 1.8.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReloadBenchmark {
+	/**
+	 * The bundled emoji index.
+	 */
+	private EmojiIndex emojis;
+	/**
+	 * The default shortcuts.
+	 */
+	private LinkedHashMap<String, String> shortcuts;
+	/**
+	 * The default shortcuts plus one more.
+	 */
+	private LinkedHashMap<String, String> changedShortcuts;
+	/**
+	 * The table compiled from the default shortcuts.
+	 */
+	private EmojiTable table;
+	
+	@Setup
+	public void setup() throws IOException {
+		emojis = EmojiIndex.loadBundled();
+		shortcuts = MessageShapes.defaultShortcuts();
+		changedShortcuts = new LinkedHashMap<>(shortcuts);
+		changedShortcuts.put(":fire:", ":fire:");
+		table = new EmojiTable(emojis, shortcuts, false);
+	}
+	
+	@Benchmark
+	public EmojiTable compileAll() {
+		return new EmojiTable(emojis, changedShortcuts, false);
+	}
+	
+	@Benchmark
+	public EmojiTable updateShortcuts() {
+		return table.update(changedShortcuts, false, EmojiTable.DEFAULT_MAX_LENGTH);
+	}
+	
+	@Benchmark
+	public EmojiTable updateUnchanged() {
+		return table.update(shortcuts, false, EmojiTable.DEFAULT_MAX_LENGTH);
+	}
+}
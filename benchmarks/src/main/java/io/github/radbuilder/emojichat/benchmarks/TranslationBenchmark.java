@@ -0,0 +1,97 @@
+package io.github.radbuilder.emojichat.benchmarks;
+
+import io.github.radbuilder.emojichat.utils.EmojiTable;
+import io.github.radbuilder.emojichat.utils.TranslationMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the emoji translation paths that don't depend on the coloring setting: {@code toEmoji} (commands),
+ * {@code toEmojiFromSign}, {@code translateShorthand}, the fused shortcut + emoji translation the listeners use (also appending into a reused
+ * buffer, like plugins using the service API do), and the reverse translation back to emoji names.
+ *
+ * @author RadBuilder
+ * @version 1.8.1
+ * @since 1.8.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TranslationBenchmark {
+	/**
+	 * The message shape to translate.
+	 */
+	@Param({MessageShapes.NONE, MessageShapes.SHORTCUTS, MessageShapes.DENSE, MessageShapes.LONG, MessageShapes.COLORED, MessageShapes.UNICODE})
+	public String shape;
+	
+	/**
+	 * The emoji table.
+	 */
+	private EmojiTable table;
+	/**
+	 * The message to translate.
+	 */
+	private String message;
+	/**
+	 * The translated message, for the reverse translation.
+	 */
+	private String translated;
+	/**
+	 * The reused output buffer.
+	 */
+	private final StringBuilder buffer = new StringBuilder(512);
+	
+	@Setup
+	public void setup() throws IOException {
+		table = MessageShapes.table(false);
+		message = MessageShapes.message(shape);
+		translated = table.translate(message, TranslationMode.COMMAND, true);
+	}
+	
+	@Benchmark
+	public String toEmoji() {
+		return table.translate(message, TranslationMode.COMMAND, false);
+	}
+	
+	@Benchmark
+	public String toEmojiFromSign() {
+		return table.translate(message, TranslationMode.SIGN, false);
+	}
+	
+	@Benchmark
+	public String translateShorthand() {
+		return table.translateShorthand(message);
+	}
+	
+	@Benchmark
+	public String translateCommandWithShortcuts() {
+		return table.translate(message, TranslationMode.COMMAND, true);
+	}
+	
+	@Benchmark
+	public StringBuilder appendTranslatedWithShortcuts() {
+		buffer.setLength(0);
+		table.appendTranslated(message, buffer, TranslationMode.COMMAND, true, null);
+		return buffer;
+	}
+	
+	@Benchmark
+	public String toNames() {
+		return table.getEmojiIndex().toNames(translated);
+	}
+}
@@ -0,0 +1,139 @@
+package io.github.radbuilder.emojichat.utils;
+
+import java.util.Arrays;
+
+/**
+ * Trie over code point sequences (i.e. Unicode emoji), kept in one open-addressing hash table instead of a node object
+ * per code point.
+ * <p>
+ * Nodes are numbered, with the root at 0. The edge from a node to its child for a code point is a single {@code long}
+ * key, {@code node << 21 | codePoint}, so walking one step is a hash and usually one array access, without boxing or
+ * following pointers. The table is sized when it's built and never changes afterwards, so it's safe to share between
+ * threads.
+ *
+ * @author RadBuilder
+ * @version 1.8.1
+ * @since 1.8.1
+ */
+final class CodePointTrie {
+	/**
+	 * The root node.
+	 */
+	static final int ROOT = 0;
+	/**
+	 * The marker for an empty slot.
+	 */
+	private static final long EMPTY = -1L;
+	
+	/**
+	 * The edge keys, {@code node << 21 | codePoint}, or {@link #EMPTY}.
+	 */
+	private final long[] keys;
+	/**
+	 * The child node of each edge, in the same slots as {@link #keys}.
+	 */
+	private final int[] children;
+	/**
+	 * The value of the sequence ending at each node, or -1 if no sequence ends there.
+	 */
+	private int[] values;
+	/**
+	 * The number of nodes.
+	 */
+	private int nodes;
+	
+	/**
+	 * Builds the trie from the specified sequences.
+	 *
+	 * @param sequences The code point sequences.
+	 * @param values The value of each sequence, zero or more. If a sequence is there twice, the first value is kept.
+	 */
+	CodePointTrie(int[][] sequences, int[] values) {
+		int edges = 0;
+		for (int[] sequence : sequences) {
+			edges += sequence.length;
+		}
+		int capacity = Integer.highestOneBit(Math.max(edges, 1) * 2 - 1) << 1; // At most half full
+		keys = new long[capacity];
+		Arrays.fill(keys, EMPTY);
+		children = new int[capacity];
+		this.values = new int[edges + 1];
+		Arrays.fill(this.values, -1);
+		nodes = 1; // The root
+		
+		for (int i = 0; i < sequences.length; i++) {
+			int node = ROOT;
+			for (int codePoint : sequences[i]) {
+				node = childOrAdd(node, codePoint);
+			}
+			if (node != ROOT && this.values[node] < 0) {
+				this.values[node] = values[i];
+			}
+		}
+		this.values = Arrays.copyOf(this.values, nodes);
+	}
+	
+	/**
+	 * Gets the child of the specified node for the specified code point.
+	 *
+	 * @param node The node.
+	 * @param codePoint The code point.
+	 * @return The child node, or -1 if there isn't one.
+	 */
+	int child(int node, int codePoint) {
+		long key = (long) node << 21 | codePoint;
+		int mask = keys.length - 1;
+		for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+			long k = keys[slot];
+			if (k == key) {
+				return children[slot];
+			}
+			if (k == EMPTY) {
+				return -1;
+			}
+		}
+	}
+	
+	/**
+	 * Gets the value of the sequence ending at the specified node.
+	 *
+	 * @param node The node.
+	 * @return The value, or -1 if no sequence ends at the node.
+	 */
+	int value(int node) {
+		return values[node];
+	}
+	
+	/**
+	 * Gets the child of the specified node for the specified code point, adding it if it isn't there.
+	 *
+	 * @param node The node.
+	 * @param codePoint The code point.
+	 * @return The child node.
+	 */
+	private int childOrAdd(int node, int codePoint) {
+		long key = (long) node << 21 | codePoint;
+		int mask = keys.length - 1;
+		int slot = hash(key) & mask;
+		while (keys[slot] != EMPTY) {
+			if (keys[slot] == key) {
+				return children[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		children[slot] = nodes;
+		return nodes++;
+	}
+	
+	/**
+	 * Spreads the bits of the specified key, so nearby code points don't end up in neighboring slots.
+	 *
+	 * @param key The edge key.
+	 * @return The hash.
+	 */
+	private static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+}
@@ -0,0 +1,118 @@
+package io.github.radbuilder.emojichat.utils;
+
+import java.util.Locale;
+
+/**
+ * How much work the main thread handlers (signs, commands and tab completion) do, stepped down by the
+ * plugin's load shedder when the server falls behind. Every level does less than the one before.
+ *
+ * @author RadBuilder
+ * @version 1.8.1
+ * @since 1.8.1
+ */
+public enum DegradationLevel {
+	/**
+	 * Everything is translated as configured.
+	 */
+	FULL(true, true, true),
+	/**
+	 * Emojis are inserted as-is, without the color codes that fix their coloring.
+	 */
+	NO_COLOR_FIX(false, true, true),
+	/**
+	 * Shortcuts aren't translated either.
+	 */
+	NO_SHORTHAND(false, false, true),
+	/**
+	 * Only explicit emoji names (i.e. :100:) and Unicode emojis are translated, and emoji names aren't tab completed.
+	 * Unicode emojis are found in the same pass as the names, so skipping them would save next to nothing.
+	 */
+	NAMES_ONLY(false, false, false);
+	
+	/**
+	 * If emoji coloring is fixed.
+	 */
+	private final boolean coloring;
+	/**
+	 * If shortcuts are translated.
+	 */
+	private final boolean shortcuts;
+	/**
+	 * If emoji names are tab completed.
+	 */
+	private final boolean tabComplete;
+	
+	/**
+	 * Creates a degradation level.
+	 *
+	 * @param coloring If emoji coloring is fixed.
+	 * @param shortcuts If shortcuts are translated.
+	 * @param tabComplete If emoji names are tab completed.
+	 */
+	DegradationLevel(boolean coloring, boolean shortcuts, boolean tabComplete) {
+		this.coloring = coloring;
+		this.shortcuts = shortcuts;
+		this.tabComplete = tabComplete;
+	}
+	
+	/**
+	 * Gets the translation mode to use for a message at this level.
+	 *
+	 * @param mode Where the message ends up.
+	 * @return The mode, or {@link TranslationMode#COMMAND} (emojis as-is) if coloring is skipped.
+	 */
+	public TranslationMode translationMode(TranslationMode mode) {
+		return coloring ? mode : TranslationMode.COMMAND;
+	}
+	
+	/**
+	 * If shortcuts are translated at this level.
+	 *
+	 * @return True if shortcuts are translated, false otherwise.
+	 */
+	public boolean shortcuts() {
+		return shortcuts;
+	}
+	
+	/**
+	 * If emoji names are tab completed at this level.
+	 *
+	 * @return True if emoji names are tab completed, false otherwise.
+	 */
+	public boolean tabComplete() {
+		return tabComplete;
+	}
+	
+	/**
+	 * Gets the level after this one, or this level if it's the last.
+	 *
+	 * @return The next level.
+	 */
+	DegradationLevel next() {
+		return this == NAMES_ONLY ? this : values()[ordinal() + 1];
+	}
+	
+	/**
+	 * Gets the level before this one, or this level if it's the first.
+	 *
+	 * @return The previous level.
+	 */
+	DegradationLevel previous() {
+		return this == FULL ? this : values()[ordinal() - 1];
+	}
+	
+	/**
+	 * Gets the level with the specified config name, i.e. no-shorthand.
+	 *
+	 * @param name The config name.
+	 * @param fallback The level to return if the name doesn't match any level.
+	 * @return The level.
+	 */
+	public static DegradationLevel fromConfig(String name, DegradationLevel fallback) {
+		try {
+			return name == null ? fallback : valueOf(name.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			return fallback;
+		}
+	}
+}
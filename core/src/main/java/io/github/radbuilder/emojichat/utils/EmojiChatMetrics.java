@@ -0,0 +1,290 @@
+package io.github.radbuilder.emojichat.utils;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Translation metrics: a latency histogram per handler (chat, sign and command) and counters for scanned messages,
+ * replacements, added bytes, messages that would have grown too long, translation cache lookups and load shedding.
+ * Exposed through /emojichat stats and JMX.
+ * <p>
+ * When metrics are off, the handlers don't read the clock and the translator gets no metrics to count in, so the only
+ * cost left is one volatile read per event.
+ *
+ * @author RadBuilder
+ * @version 1.8.1
+ * @since 1.8.1
+ */
+public class EmojiChatMetrics implements EmojiChatMetricsMBean {
+	/**
+	 * The JMX domain the MBeans are registered under.
+	 */
+	private static final String JMX_DOMAIN = "io.github.radbuilder.emojichat";
+	
+	/**
+	 * If metrics are being recorded.
+	 */
+	private volatile boolean enabled;
+	/**
+	 * The latency histograms, indexed by {@link TranslationMode} ordinal.
+	 */
+	private final LatencyHistogram[] latencies;
+	/**
+	 * The number of scanned messages.
+	 */
+	private final LongAdder messagesScanned;
+	/**
+	 * The number of replaced emoji names.
+	 */
+	private final LongAdder emojisReplaced;
+	/**
+	 * The number of replaced shortcuts.
+	 */
+	private final LongAdder shortcutsReplaced;
+	/**
+	 * The number of UTF-8 bytes translating added.
+	 */
+	private final LongAdder bytesAdded;
+	/**
+	 * The number of messages that would have grown too long, and got fewer colors or no emojis instead.
+	 */
+	private final LongAdder messagesDegraded;
+	/**
+	 * The number of translations found in the translation cache.
+	 */
+	private final LongAdder cacheHits;
+	/**
+	 * The number of translations looked up in the translation cache, but not found.
+	 */
+	private final LongAdder cacheMisses;
+	/**
+	 * The current degradation level of the main thread handlers.
+	 */
+	private volatile DegradationLevel degradationLevel;
+	/**
+	 * The number of degradation level changes.
+	 */
+	private final LongAdder degradationLevelChanges;
+	/**
+	 * If the MBeans are registered.
+	 */
+	private boolean registered;
+	
+	/**
+	 * Creates the metrics, disabled until {@link #setEnabled(boolean, Logger)} is called.
+	 */
+	public EmojiChatMetrics() {
+		this(true);
+	}
+	
+	/**
+	 * Creates the metrics, disabled until {@link #setEnabled(boolean, Logger)} is called.
+	 *
+	 * @param histograms If the latency histograms should be created, false for metrics that only collect counts.
+	 */
+	EmojiChatMetrics(boolean histograms) {
+		latencies = new LatencyHistogram[histograms ? TranslationMode.values().length : 0];
+		for (int i = 0; i < latencies.length; i++) {
+			latencies[i] = new LatencyHistogram();
+		}
+		messagesScanned = new LongAdder();
+		emojisReplaced = new LongAdder();
+		shortcutsReplaced = new LongAdder();
+		bytesAdded = new LongAdder();
+		messagesDegraded = new LongAdder();
+		cacheHits = new LongAdder();
+		cacheMisses = new LongAdder();
+		degradationLevel = DegradationLevel.FULL;
+		degradationLevelChanges = new LongAdder();
+	}
+	
+	/**
+	 * Turns metrics on or off, registering or unregistering the MBeans.
+	 *
+	 * @param enabled True to record metrics, false to stop.
+	 * @param logger The logger to report JMX problems to.
+	 */
+	public synchronized void setEnabled(boolean enabled, Logger logger) {
+		this.enabled = enabled;
+		if (enabled == registered) {
+			return;
+		}
+		
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			if (enabled) {
+				server.registerMBean(this, new ObjectName(JMX_DOMAIN + ":type=Metrics"));
+				for (TranslationMode mode : TranslationMode.values()) {
+					server.registerMBean(latencies[mode.ordinal()], latencyName(mode));
+				}
+			} else {
+				server.unregisterMBean(new ObjectName(JMX_DOMAIN + ":type=Metrics"));
+				for (TranslationMode mode : TranslationMode.values()) {
+					server.unregisterMBean(latencyName(mode));
+				}
+			}
+			registered = enabled;
+		} catch (JMException e) {
+			logger.warning("Couldn't " + (enabled ? "register" : "unregister") + " the EmojiChat JMX metrics: " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * Gets the JMX name of the latency histogram for the specified handler.
+	 *
+	 * @param mode The handler's translation mode.
+	 * @return The MBean name.
+	 * @throws JMException If the name isn't valid.
+	 */
+	private static ObjectName latencyName(TranslationMode mode) throws JMException {
+		return new ObjectName(JMX_DOMAIN + ":type=Latency,handler=" + mode.name().toLowerCase(Locale.ROOT));
+	}
+	
+	/**
+	 * If metrics are being recorded.
+	 *
+	 * @return True if metrics are being recorded, false otherwise.
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+	
+	/**
+	 * Starts timing a handler.
+	 *
+	 * @return The start time to pass to {@link #stopTimer(TranslationMode, long)}, or 0 if metrics are off.
+	 */
+	public long startTimer() {
+		return enabled ? System.nanoTime() : 0;
+	}
+	
+	/**
+	 * Stops timing a handler and records the latency.
+	 *
+	 * @param mode The handler's translation mode.
+	 * @param start The start time from {@link #startTimer()}.
+	 */
+	public void stopTimer(TranslationMode mode, long start) {
+		if (start != 0) {
+			latencies[mode.ordinal()].record(System.nanoTime() - start);
+		}
+	}
+	
+	/**
+	 * Records the latency of a handler that was timed anyway, i.e. for load shedding.
+	 *
+	 * @param mode The handler's translation mode.
+	 * @param nanos The latency, in nanoseconds.
+	 */
+	public void record(TranslationMode mode, long nanos) {
+		if (enabled) {
+			latencies[mode.ordinal()].record(nanos);
+		}
+	}
+	
+	/**
+	 * Counts a scanned message.
+	 */
+	void messageScanned() {
+		messagesScanned.increment();
+	}
+	
+	/**
+	 * Counts the replacements made in a message.
+	 *
+	 * @param emojis The number of replaced emoji names.
+	 * @param shortcuts The number of replaced shortcuts.
+	 * @param bytes The number of UTF-8 bytes added.
+	 */
+	void replaced(int emojis, int shortcuts, int bytes) {
+		emojisReplaced.add(emojis);
+		shortcutsReplaced.add(shortcuts);
+		bytesAdded.add(bytes);
+	}
+	
+	/**
+	 * Counts a message that would have grown too long.
+	 */
+	void degraded() {
+		messagesDegraded.increment();
+	}
+	
+	/**
+	 * Counts a translation cache lookup.
+	 *
+	 * @param hit True if the translation was cached, false otherwise.
+	 */
+	void cacheLookup(boolean hit) {
+		(hit ? cacheHits : cacheMisses).increment();
+	}
+	
+	/**
+	 * Records a degradation level change.
+	 *
+	 * @param level The new level.
+	 */
+	void degradationLevelChanged(DegradationLevel level) {
+		degradationLevel = level;
+		degradationLevelChanges.increment();
+	}
+	
+	/**
+	 * Gets the latency histogram for the specified handler.
+	 *
+	 * @param mode The handler's translation mode.
+	 * @return The latency histogram.
+	 */
+	public LatencyHistogram getLatency(TranslationMode mode) {
+		return latencies[mode.ordinal()];
+	}
+	
+	@Override
+	public long getMessagesScanned() {
+		return messagesScanned.sum();
+	}
+	
+	@Override
+	public long getEmojisReplaced() {
+		return emojisReplaced.sum();
+	}
+	
+	@Override
+	public long getShortcutsReplaced() {
+		return shortcutsReplaced.sum();
+	}
+	
+	@Override
+	public long getBytesAdded() {
+		return bytesAdded.sum();
+	}
+	
+	@Override
+	public long getMessagesDegraded() {
+		return messagesDegraded.sum();
+	}
+	
+	@Override
+	public long getCacheHits() {
+		return cacheHits.sum();
+	}
+	
+	@Override
+	public long getCacheMisses() {
+		return cacheMisses.sum();
+	}
+	
+	@Override
+	public String getDegradationLevel() {
+		return degradationLevel.name();
+	}
+	
+	@Override
+	public long getDegradationLevelChanges() {
+		return degradationLevelChanges.sum();
+	}
+}
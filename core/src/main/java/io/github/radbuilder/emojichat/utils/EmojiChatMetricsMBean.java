@@ -0,0 +1,75 @@
+package io.github.radbuilder.emojichat.utils;
+
+/**
+ * JMX view of the {@link EmojiChatMetrics} counters. The per-handler latencies are registered as separate
+ * {@link LatencyHistogramMBean}s.
+ *
+ * @author RadBuilder
+ * @version 1.8.1
+ * @since 1.8.1
+ */
+public interface EmojiChatMetricsMBean {
+	/**
+	 * Gets how many messages were scanned for emojis.
+	 *
+	 * @return The number of scanned messages.
+	 */
+	long getMessagesScanned();
+	
+	/**
+	 * Gets how many emoji names were replaced with emojis.
+	 *
+	 * @return The number of replaced emoji names.
+	 */
+	long getEmojisReplaced();
+	
+	/**
+	 * Gets how many shortcuts were replaced.
+	 *
+	 * @return The number of replaced shortcuts.
+	 */
+	long getShortcutsReplaced();
+	
+	/**
+	 * Gets how many UTF-8 bytes translating added to messages (negative if it made them shorter).
+	 *
+	 * @return The number of added bytes.
+	 */
+	long getBytesAdded();
+	
+	/**
+	 * Gets how many messages would have grown past the maximum length, and were sent with fewer colors or without
+	 * emojis instead.
+	 *
+	 * @return The number of degraded messages.
+	 */
+	long getMessagesDegraded();
+	
+	/**
+	 * Gets how many translations were found in the translation cache.
+	 *
+	 * @return The number of cache hits.
+	 */
+	long getCacheHits();
+	
+	/**
+	 * Gets how many translations were looked up in the translation cache, but weren't there.
+	 *
+	 * @return The number of cache misses.
+	 */
+	long getCacheMisses();
+	
+	/**
+	 * Gets the current degradation level of the main thread handlers, i.e. FULL or NO_SHORTHAND.
+	 *
+	 * @return The name of the current degradation level.
+	 */
+	String getDegradationLevel();
+	
+	/**
+	 * Gets how many times the degradation level changed.
+	 *
+	 * @return The number of degradation level changes.
+	 */
+	long getDegradationLevelChanges();
+}
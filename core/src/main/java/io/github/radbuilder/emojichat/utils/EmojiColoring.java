@@ -0,0 +1,238 @@
+package io.github.radbuilder.emojichat.utils;
+
+/**
+ * How emojis are colored in translated text, and the formatting state tracker that goes with it.
+ * <p>
+ * Emojis only show up in their real colors when they're drawn white, so with coloring on every emoji is put after
+ * {@code §f}. A color code also clears the formats (bold, italic, ...), so after the emoji the color and formats that
+ * were active before it have to be put back. The active state is tracked while the text between the emojis is
+ * appended, so it doesn't take another pass over the message.
+ * <p>
+ * Codes are only written when the state the client ends up in actually changes: adjacent emojis share one {@code §f},
+ * nothing is put back at the end of the text or before text that sets its own color, and spaces between emojis don't
+ * need their color put back.
+ * <p>
+ * The state is packed in an int: the active color code in the low 16 bits (0 if no color code was used yet), and one
+ * bit per format code above it.
+ *
+ * @author RadBuilder
+ * @version 1.8.1
+ * @since 1.8.1
+ */
+public final class EmojiColoring {
+	/**
+	 * Emojis are inserted as-is, i.e. in commands.
+	 */
+	public static final EmojiColoring NONE = new EmojiColoring(false, (char) 0);
+	/**
+	 * Emojis are drawn white, then the active color and formats are put back. Chat is white by default, so nothing is
+	 * put back if the text didn't use a color code yet.
+	 */
+	public static final EmojiColoring CHAT = new EmojiColoring(true, (char) 0);
+	/**
+	 * Emojis are drawn white, then the active color (black by default) and formats are put back.
+	 */
+	public static final EmojiColoring SIGN = new EmojiColoring(true, '0');
+	
+	/**
+	 * The formatting code character.
+	 */
+	private static final char SECTION = '§';
+	/**
+	 * The format codes, in the order of their state bits.
+	 */
+	private static final String FORMATS = "klmno";
+	/**
+	 * The first state bit used for formats.
+	 */
+	private static final int FORMAT_SHIFT = 16;
+	
+	/**
+	 * If emojis are drawn white and the state is put back after them.
+	 */
+	private final boolean wrap;
+	/**
+	 * The color to put back if the text didn't use a color code yet, or 0 to put back nothing.
+	 */
+	private final char defaultColor;
+	
+	/**
+	 * Creates an emoji coloring.
+	 *
+	 * @param wrap If emojis are drawn white and the state is put back after them.
+	 * @param defaultColor The color to put back if the text didn't use a color code yet, or 0 to put back nothing.
+	 */
+	private EmojiColoring(boolean wrap, char defaultColor) {
+		this.wrap = wrap;
+		this.defaultColor = defaultColor;
+	}
+	
+	/**
+	 * Gets roughly how many characters an emoji takes up in the output, for sizing buffers.
+	 *
+	 * @return The expected output length of one emoji.
+	 */
+	int expectedLength() {
+		return wrap ? 7 : 1;
+	}
+	
+	/**
+	 * Starts writing translated text to the specified builder.
+	 *
+	 * @param builder The builder to append to.
+	 * @return The output to write the text and emojis to, in order.
+	 */
+	Output output(StringBuilder builder) {
+		return new Output(builder);
+	}
+	
+	/**
+	 * Applies a formatting code to the state, like the client does.
+	 *
+	 * @param state The current state.
+	 * @param code The lower-case code character, i.e. a or l.
+	 * @return The new state.
+	 */
+	private static int apply(int state, char code) {
+		if (isColor(code)) { // A color clears the formats
+			return code;
+		}
+		if (code == 'r') {
+			return 0;
+		}
+		int format = FORMATS.indexOf(code);
+		return format >= 0 ? state | (1 << (FORMAT_SHIFT + format)) : state; // Unknown codes do nothing
+	}
+	
+	/**
+	 * Checks if the specified code is a color code.
+	 *
+	 * @param code The lower-case code character.
+	 * @return True if the code is a color code, false otherwise.
+	 */
+	private static boolean isColor(char code) {
+		return (code >= '0' && code <= '9') || (code >= 'a' && code <= 'f');
+	}
+	
+	/**
+	 * Translated text being written, tracking the state the source text asks for and the state the client is actually
+	 * in at the end of the output.
+	 */
+	final class Output {
+		/**
+		 * The output state while it follows the source text, i.e. before the first emoji.
+		 */
+		private static final int SOURCE = -1;
+		/**
+		 * The output state right after an emoji: white, without formats.
+		 */
+		private static final int WHITE = 'f';
+		
+		/**
+		 * The builder to append to.
+		 */
+		private final StringBuilder builder;
+		/**
+		 * The state the source text asks for at the end of the output.
+		 */
+		private int state;
+		/**
+		 * The state the client is in at the end of the output, or {@link #SOURCE} if it's the source text's state.
+		 */
+		private int out = SOURCE;
+		
+		/**
+		 * Creates the output.
+		 *
+		 * @param builder The builder to append to.
+		 */
+		private Output(StringBuilder builder) {
+			this.builder = builder;
+		}
+		
+		/**
+		 * Appends part of the source text, putting back the source state first if an emoji changed it and the text
+		 * needs it.
+		 *
+		 * @param text The text.
+		 * @param from The start index, inclusive.
+		 * @param to The end index, exclusive.
+		 */
+		void text(CharSequence text, int from, int to) {
+			if (from == to) {
+				return;
+			}
+			if (!wrap) {
+				builder.append(text, from, to);
+				return;
+			}
+			
+			if (out != SOURCE) {
+				int start = from;
+				if ((state >>> FORMAT_SHIFT) == 0) { // Spaces look the same in any color
+					while (start < to && text.charAt(start) == ' ') {
+						start++;
+					}
+				}
+				if (start == to) { // Only spaces, the emoji color can stay
+					builder.append(text, from, to);
+					return;
+				}
+				if (!startsWithColor(text, start, to)) { // Text starting with a color sets the state itself
+					restore();
+				}
+				out = SOURCE;
+			}
+			builder.append(text, from, to);
+			for (int i = from; i < to - 1; i++) {
+				if (text.charAt(i) == SECTION) {
+					state = apply(state, Character.toLowerCase(text.charAt(++i)));
+				}
+			}
+		}
+		
+		/**
+		 * Appends an emoji, colored white if coloring is on and it isn't white already.
+		 *
+		 * @param emoji The emoji character.
+		 */
+		void emoji(char emoji) {
+			if (wrap && out != WHITE && !(out == SOURCE && state == WHITE)) {
+				builder.append(SECTION).append('f'); // Sets the emoji color to white for correct coloring
+				out = WHITE;
+			}
+			builder.append(emoji);
+		}
+		
+		/**
+		 * Puts back the source state after an emoji: the color if it isn't white, and the formats.
+		 */
+		private void restore() {
+			char color = (char) state != 0 ? (char) state : defaultColor;
+			if (color != 0 && color != WHITE) {
+				builder.append(SECTION).append(color);
+			}
+			for (int format = 0; format < FORMATS.length(); format++) {
+				if ((state & (1 << (FORMAT_SHIFT + format))) != 0) {
+					builder.append(SECTION).append(FORMATS.charAt(format));
+				}
+			}
+		}
+		
+		/**
+		 * Checks if part of the specified text starts with a color or reset code.
+		 *
+		 * @param text The text.
+		 * @param from The start index, inclusive.
+		 * @param to The end index, exclusive.
+		 * @return True if the text starts with a color or reset code, false otherwise.
+		 */
+		private boolean startsWithColor(CharSequence text, int from, int to) {
+			if (to - from < 2 || text.charAt(from) != SECTION) {
+				return false;
+			}
+			char code = Character.toLowerCase(text.charAt(from + 1));
+			return isColor(code) || code == 'r';
+		}
+	}
+}
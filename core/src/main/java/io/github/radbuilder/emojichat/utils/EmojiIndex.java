@@ -0,0 +1,368 @@
+package io.github.radbuilder.emojichat.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The emoji names in list order, with emoji {@code i} assigned the character {@code first + i}.
+ * <p>
+ * The index is compiled from list.txt at build time (emojis.idx, see {@code EmojiIndexCompiler} in the tools module),
+ * so loading it doesn't parse text or box a character per emoji. Because the emoji characters are one contiguous
+ * range, looking up an emoji's name is a single array access at {@code emoji - first}; names are looked up with a
+ * binary search over a sorted copy.
+ * <p>
+ * The index also maps Unicode emoji sequences (from unicode.txt) to the emojis they stand for, so emojis typed on a
+ * phone keyboard can be swapped for their EmojiChat emoji.
+ *
+ * @author RadBuilder
+ * @version 1.8.1
+ * @since 1.8.1
+ */
+public final class EmojiIndex {
+	/**
+	 * An empty index.
+	 */
+	public static final EmojiIndex EMPTY = new EmojiIndex('娀', new String[0], new int[0][], new int[0]);
+	
+	/**
+	 * The index magic number, "EMJI".
+	 */
+	private static final int MAGIC = 0x454D4A49;
+	/**
+	 * The index format version.
+	 */
+	private static final short VERSION = 2;
+	
+	/**
+	 * The character of the first emoji.
+	 */
+	private final char first;
+	/**
+	 * The emoji names (i.e. :100:), in list order.
+	 */
+	private final String[] names;
+	/**
+	 * The emoji names, sorted.
+	 */
+	private final String[] sortedNames;
+	/**
+	 * The emoji characters, in the order of {@link #sortedNames}.
+	 */
+	private final char[] sortedEmojis;
+	/**
+	 * The Unicode emoji sequences, without variation selectors and skin tone modifiers.
+	 */
+	private final int[][] unicode;
+	/**
+	 * The position in the list of the emoji each Unicode sequence stands for.
+	 */
+	private final int[] unicodeEmojis;
+	
+	/**
+	 * Creates the emoji index.
+	 *
+	 * @param first The character of the first emoji.
+	 * @param names The emoji names, in list order.
+	 * @param unicode The Unicode emoji sequences.
+	 * @param unicodeEmojis The position in the list of the emoji each Unicode sequence stands for.
+	 */
+	private EmojiIndex(char first, String[] names, int[][] unicode, int[] unicodeEmojis) {
+		this.first = first;
+		this.names = names;
+		this.unicode = unicode;
+		this.unicodeEmojis = unicodeEmojis;
+		
+		Integer[] order = new Integer[names.length]; // Only boxed once, while loading
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, (a, b) -> names[a].compareTo(names[b]));
+		sortedNames = new String[names.length];
+		sortedEmojis = new char[names.length];
+		for (int i = 0; i < order.length; i++) {
+			sortedNames[i] = names[order[i]];
+			sortedEmojis[i] = (char) (first + order[i]);
+		}
+	}
+	
+	/**
+	 * Loads the emoji index bundled with EmojiChat. Falls back to parsing list.txt and unicode.txt if the compiled
+	 * index isn't there, i.e. when running from an IDE without the Maven build.
+	 *
+	 * @return The bundled emoji index.
+	 * @throws IOException If neither the index nor the list can be read.
+	 */
+	public static EmojiIndex loadBundled() throws IOException {
+		InputStream indexInput = EmojiIndex.class.getResourceAsStream("/emojis.idx");
+		if (indexInput != null) {
+			try (InputStream input = indexInput) {
+				return read(input);
+			}
+		}
+		
+		InputStream listInput = EmojiIndex.class.getResourceAsStream("/list.txt");
+		if (listInput == null) {
+			throw new IOException("Neither emojis.idx nor list.txt is bundled");
+		}
+		try (InputStream input = listInput; InputStream unicodeInput = EmojiIndex.class.getResourceAsStream("/unicode.txt")) {
+			return parseList(input, unicodeInput);
+		}
+	}
+	
+	/**
+	 * Reads a compiled emoji index.
+	 *
+	 * @param indexInput The index input.
+	 * @return The emoji index.
+	 * @throws IOException If the index can't be read or isn't a valid index.
+	 */
+	public static EmojiIndex read(InputStream indexInput) throws IOException {
+		DataInputStream input = new DataInputStream(new BufferedInputStream(indexInput));
+		if (input.readInt() != MAGIC) {
+			throw new IOException("Not an emoji index");
+		}
+		short version = input.readShort();
+		if (version != VERSION) {
+			throw new IOException("Unsupported emoji index version " + version);
+		}
+		
+		char first = input.readChar();
+		String[] names = new String[input.readInt()];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = input.readUTF();
+		}
+		int[][] unicode = new int[input.readInt()][];
+		int[] unicodeEmojis = new int[unicode.length];
+		for (int i = 0; i < unicode.length; i++) {
+			unicodeEmojis[i] = input.readUnsignedShort();
+			unicode[i] = new int[input.readUnsignedByte()];
+			for (int j = 0; j < unicode[i].length; j++) {
+				unicode[i][j] = input.readInt();
+			}
+		}
+		return new EmojiIndex(first, names, unicode, unicodeEmojis);
+	}
+	
+	/**
+	 * Parses the emoji list (list.txt). Every line that isn't a comment is an emoji name, and the emojis are assigned
+	 * characters from '娀' upwards in list order.
+	 *
+	 * @param listInput The emoji list input.
+	 * @return The emoji index.
+	 * @throws IOException If the emoji list can't be read.
+	 */
+	public static EmojiIndex parseList(InputStream listInput) throws IOException {
+		return parseList(listInput, null);
+	}
+	
+	/**
+	 * Parses the emoji list (list.txt) and the Unicode emoji list (unicode.txt). Every line of the Unicode emoji list
+	 * that isn't a comment is an emoji name followed by the code points of a Unicode emoji sequence in hex; lines for
+	 * names that aren't in the emoji list are skipped.
+	 *
+	 * @param listInput The emoji list input.
+	 * @param unicodeInput The Unicode emoji list input, or null if there isn't one.
+	 * @return The emoji index.
+	 * @throws IOException If one of the lists can't be read.
+	 */
+	public static EmojiIndex parseList(InputStream listInput, InputStream unicodeInput) throws IOException {
+		List<String> names = new ArrayList<>();
+		BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(listInput, StandardCharsets.UTF_8));
+		String line;
+		while ((line = bufferedReader.readLine()) != null) {
+			if (line.startsWith("#")) { // Ignored lines
+				continue;
+			}
+			names.add(line);
+		}
+		
+		List<int[]> unicode = new ArrayList<>();
+		List<Integer> unicodeEmojis = new ArrayList<>();
+		if (unicodeInput != null) {
+			bufferedReader = new BufferedReader(new InputStreamReader(unicodeInput, StandardCharsets.UTF_8));
+			while ((line = bufferedReader.readLine()) != null) {
+				String[] parts = line.trim().split("\\s+");
+				int index = names.indexOf(parts[0]);
+				if (line.startsWith("#") || parts.length < 2 || index < 0) { // Ignored lines
+					continue;
+				}
+				int[] sequence = new int[parts.length - 1];
+				for (int i = 0; i < sequence.length; i++) {
+					sequence[i] = Integer.parseInt(parts[i + 1], 16);
+				}
+				unicode.add(sequence);
+				unicodeEmojis.add(index);
+			}
+		}
+		int[] emojis = new int[unicodeEmojis.size()];
+		for (int i = 0; i < emojis.length; i++) {
+			emojis[i] = unicodeEmojis.get(i);
+		}
+		return new EmojiIndex('娀', names.toArray(new String[0]), unicode.toArray(new int[0][]), emojis);
+	}
+	
+	/**
+	 * Gets the number of emojis.
+	 *
+	 * @return The number of emojis.
+	 */
+	public int size() {
+		return names.length;
+	}
+	
+	/**
+	 * Gets the name of the specified emoji.
+	 *
+	 * @param index The emoji's position in the list.
+	 * @return The emoji name, i.e. :100:.
+	 */
+	public String getName(int index) {
+		return names[index];
+	}
+	
+	/**
+	 * Gets the character of the specified emoji.
+	 *
+	 * @param index The emoji's position in the list.
+	 * @return The emoji character.
+	 */
+	public char getEmoji(int index) {
+		return (char) (first + index);
+	}
+	
+	/**
+	 * Gets the number of Unicode emoji sequences.
+	 *
+	 * @return The number of Unicode emoji sequences.
+	 */
+	public int getUnicodeCount() {
+		return unicode.length;
+	}
+	
+	/**
+	 * Gets the specified Unicode emoji sequence.
+	 *
+	 * @param index The sequence's position.
+	 * @return The code points, without variation selectors and skin tone modifiers.
+	 */
+	public int[] getUnicode(int index) {
+		return unicode[index].clone();
+	}
+	
+	/**
+	 * Gets the emoji the specified Unicode emoji sequence stands for.
+	 *
+	 * @param index The sequence's position.
+	 * @return The emoji's position in the list.
+	 */
+	public int getUnicodeEmoji(int index) {
+		return unicodeEmojis[index];
+	}
+	
+	/**
+	 * Gets the position of the specified emoji in the list.
+	 *
+	 * @param emoji The emoji character.
+	 * @return The emoji's position in the list, or -1 if the character isn't an emoji.
+	 */
+	public int indexOf(char emoji) {
+		int index = emoji - first;
+		return index >= 0 && index < names.length ? index : -1;
+	}
+	
+	/**
+	 * Gets the name of the specified emoji.
+	 *
+	 * @param emoji The emoji character.
+	 * @return The emoji name (i.e. :100:), or null if the character isn't an emoji.
+	 */
+	public String nameOf(char emoji) {
+		int index = emoji - first;
+		return index >= 0 && index < names.length ? names[index] : null;
+	}
+	
+	/**
+	 * Gets the emoji with the specified name.
+	 *
+	 * @param name The emoji name, i.e. :100:.
+	 * @return The emoji character, or 0 if there's no emoji with that name.
+	 */
+	public char emojiOf(String name) {
+		int index = Arrays.binarySearch(sortedNames, name);
+		return index >= 0 ? sortedEmojis[index] : 0;
+	}
+	
+	/**
+	 * Adds the emoji names starting with the specified prefix to the completions, in alphabetical order. Costs a binary
+	 * search plus copying at most {@code limit} names.
+	 *
+	 * @param prefix The typed prefix, i.e. :thin.
+	 * @param limit The maximum number of names to add.
+	 * @param completions The list to add the names to.
+	 * @return The number of names added.
+	 */
+	public int complete(String prefix, int limit, List<String> completions) {
+		int index = Arrays.binarySearch(sortedNames, prefix);
+		if (index < 0) { // The prefix isn't a full name, start at the first name after it
+			index = -index - 1;
+		}
+		
+		int added = 0;
+		while (added < limit && index < sortedNames.length && sortedNames[index].startsWith(prefix)) {
+			completions.add(sortedNames[index++]);
+			added++;
+		}
+		return added;
+	}
+	
+	/**
+	 * Turns the emojis in the specified message back into their names (i.e. :100:), so the message is readable where
+	 * the ResourcePack isn't loaded, like the console, chat logs and chat bridges.
+	 *
+	 * @param message The message with emojis.
+	 * @return The message with emoji names, or the same message instance if it doesn't contain emojis.
+	 */
+	public String toNames(String message) {
+		int length = message.length();
+		int i = 0;
+		while (i < length && (char) (message.charAt(i) - first) >= names.length) { // Unsigned, so characters below first don't match either
+			i++;
+		}
+		if (i == length) { // No emojis
+			return message;
+		}
+		
+		StringBuilder builder = new StringBuilder(length + 16);
+		builder.append(message, 0, i);
+		appendNames(message, i, length, builder);
+		return builder.toString();
+	}
+	
+	/**
+	 * Appends the specified text to the builder, with the emojis turned back into their names.
+	 *
+	 * @param text The text with emojis.
+	 * @param from The index to start at, inclusive.
+	 * @param to The index to stop at, exclusive.
+	 * @param builder The builder to append to.
+	 */
+	public void appendNames(CharSequence text, int from, int to, StringBuilder builder) {
+		int last = from;
+		for (int i = from; i < to; i++) {
+			int index = (char) (text.charAt(i) - first);
+			if (index < names.length) {
+				builder.append(text, last, i).append(names[index]);
+				last = i + 1;
+			}
+		}
+		builder.append(text, last, to);
+	}
+}
@@ -0,0 +1,815 @@
+package io.github.radbuilder.emojichat.utils;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.IntConsumer;
+
+/**
+ * Compiled multi-pattern matcher for emoji names and shortcuts.
+ * <p>
+ * The emoji names and the shortcuts are compiled into two tries, so a message is scanned once and written into one
+ * output buffer instead of calling {@link String#replace(CharSequence, CharSequence)} once per emoji. Shortcuts are
+ * resolved straight to their emoji, without building the emoji name in between.
+ * <p>
+ * At each position only the longest match is kept, and a shortcut wins a tie with an emoji name of the same length.
+ * Matches starting at different positions that overlap are then accepted by priority: shortcuts in config order
+ * before emoji names in list order, and left to right for the same priority, skipping any match that overlaps one
+ * already accepted. This is close to, but not the same as, the old replace loops (shortcuts to names, then names to
+ * emojis): those could also match across text an earlier replacement had produced, i.e. {@code "):))"}.
+ * <p>
+ * Unicode emojis (i.e. from a phone keyboard) are matched in the same scan, through a {@link CodePointTrie}, and
+ * replaced with the emoji they stand for. Their variation selectors and skin tone modifiers are dropped with them,
+ * since the ResourcePack only has one glyph per emoji. Zero width joiner sequences that aren't listed themselves are
+ * taken apart component by component, so a family or a profession shows up as the emojis it's made of.
+ * <p>
+ * The emoji names only change with the plugin jar, so {@link #withShortcuts(Map)} reuses the name trie and only
+ * compiles the new shortcuts, and {@link #withGlyphs(GlyphTable)} reuses both tries for another ResourcePack variant.
+ * Emojis the variant has no glyph for are left as they were typed.
+ *
+ * @author RadBuilder
+ * @version 1.8.1
+ * @since 1.8.1
+ */
+public class EmojiMatcher {
+	/**
+	 * The compiled emoji names, shared between matchers with different shortcuts.
+	 */
+	private final Names names;
+	/**
+	 * The root node of the shortcut trie.
+	 */
+	private final Node shortcutRoot;
+	/**
+	 * Bit set of the characters shortcuts start with, indexed by character.
+	 */
+	private final long[] shortcutTriggers;
+	/**
+	 * The emoji each shortcut priority points at, by its position in the list, or -1 if the emoji is unknown.
+	 */
+	private final int[] shortcutTargets;
+	/**
+	 * The emoji character for each shortcut priority, or 0 if the shortcut points at an unknown emoji or one without a
+	 * glyph.
+	 */
+	private final char[] shortcutEmojis;
+	/**
+	 * The emoji name text for each shortcut priority, i.e. :grinning:.
+	 */
+	private final String[] shortcutNames;
+	/**
+	 * The emoji character for each emoji, in list order, or 0 if the ResourcePack variant has no glyph for it.
+	 */
+	private final char[] glyphs;
+	/**
+	 * The zero width joiner, which glues emojis into one sequence.
+	 */
+	private static final int ZWJ = 0x200D;
+	
+	/**
+	 * Creates the emoji matcher from the specified emojis and shortcuts, in order.
+	 *
+	 * @param emojis The emojis to compile.
+	 * @param shortcuts The shortcuts to compile, mapped to the emoji name they stand for (i.e. :grinning:).
+	 */
+	public EmojiMatcher(EmojiIndex emojis, Map<String, String> shortcuts) {
+		this(new Names(emojis), shortcuts, null);
+	}
+	
+	/**
+	 * Creates the emoji matcher from already compiled emoji names and the specified shortcuts, in order.
+	 *
+	 * @param names The compiled emoji names.
+	 * @param shortcuts The shortcuts to compile, mapped to the emoji name they stand for (i.e. :grinning:).
+	 * @param glyphs The emoji character for each emoji, or 0 if there's no glyph for it. Null for every emoji's own
+	 * character.
+	 */
+	private EmojiMatcher(Names names, Map<String, String> shortcuts, char[] glyphs) {
+		this.names = names;
+		this.glyphs = glyphs != null ? glyphs : names.emojis;
+		shortcutRoot = new Node();
+		shortcutTriggers = new long[1024];
+		shortcutTargets = new int[shortcuts.size()];
+		shortcutNames = new String[shortcuts.size()];
+		
+		int priority = 0;
+		for (Map.Entry<String, String> entry : shortcuts.entrySet()) {
+			shortcutRoot.insert(entry.getKey(), priority);
+			setTrigger(shortcutTriggers, entry.getKey());
+			Node target = names.root.find(entry.getValue());
+			shortcutTargets[priority] = target == null ? -1 : target.value;
+			shortcutNames[priority++] = entry.getValue();
+		}
+		shortcutEmojis = shortcutEmojis(shortcutTargets, this.glyphs);
+	}
+	
+	/**
+	 * Creates a matcher with the same emoji names and shortcuts as the specified matcher and the specified glyphs.
+	 * Nothing is compiled again.
+	 *
+	 * @param matcher The matcher to share the compiled names and shortcuts with.
+	 * @param glyphs The emoji character for each emoji, or 0 if there's no glyph for it.
+	 */
+	private EmojiMatcher(EmojiMatcher matcher, char[] glyphs) {
+		names = matcher.names;
+		this.glyphs = glyphs;
+		shortcutRoot = matcher.shortcutRoot;
+		shortcutTriggers = matcher.shortcutTriggers;
+		shortcutTargets = matcher.shortcutTargets;
+		shortcutNames = matcher.shortcutNames;
+		shortcutEmojis = shortcutEmojis(shortcutTargets, glyphs);
+	}
+	
+	/**
+	 * Resolves the emoji character of every shortcut.
+	 *
+	 * @param targets The emoji each shortcut points at, or -1 if it's unknown.
+	 * @param glyphs The emoji character for each emoji, or 0 if there's no glyph for it.
+	 * @return The emoji character for each shortcut, or 0 if it points at an unknown emoji or one without a glyph.
+	 */
+	private static char[] shortcutEmojis(int[] targets, char[] glyphs) {
+		char[] emojis = new char[targets.length];
+		for (int i = 0; i < targets.length; i++) {
+			emojis[i] = targets[i] < 0 ? 0 : glyphs[targets[i]];
+		}
+		return emojis;
+	}
+	
+	/**
+	 * Creates a matcher with the same emoji names as this one and the specified shortcuts. Only the shortcuts are
+	 * compiled; the name trie is shared.
+	 *
+	 * @param shortcuts The shortcuts to compile, mapped to the emoji name they stand for (i.e. :grinning:).
+	 * @return The new matcher.
+	 */
+	public EmojiMatcher withShortcuts(Map<String, String> shortcuts) {
+		return new EmojiMatcher(names, shortcuts, glyphs);
+	}
+	
+	/**
+	 * Creates a matcher with the same emoji names and shortcuts as this one and the glyphs of another ResourcePack
+	 * variant. Nothing is compiled again; both tries are shared.
+	 *
+	 * @param glyphs The variant's glyphs, for the same emojis this matcher was compiled from.
+	 * @return The new matcher.
+	 */
+	public EmojiMatcher withGlyphs(GlyphTable glyphs) {
+		if (glyphs.glyphs().length != names.emojis.length) {
+			throw new IllegalArgumentException("The glyphs are for " + glyphs.glyphs().length + " emojis, not " + names.emojis.length);
+		}
+		return new EmojiMatcher(this, glyphs.glyphs());
+	}
+	
+	/**
+	 * Adds the first character of the specified pattern to the trigger set.
+	 *
+	 * @param triggers The trigger set.
+	 * @param pattern The pattern.
+	 */
+	private static void setTrigger(long[] triggers, String pattern) {
+		if (!pattern.isEmpty()) {
+			char c = pattern.charAt(0);
+			triggers[c >>> 6] |= 1L << c;
+		}
+	}
+	
+	/**
+	 * Finds the first character in the specified message that an emoji name (or shortcut, if enabled) starts with.
+	 * Messages without one can't contain anything to replace.
+	 *
+	 * @param message The message to search.
+	 * @param names If emoji names should be considered.
+	 * @param shortcuts If shortcuts should be considered.
+	 * @return The index of the first trigger character, or -1 if there isn't one.
+	 */
+	public int indexOfTrigger(CharSequence message, boolean names, boolean shortcuts) {
+		for (int i = 0; i < message.length(); i++) {
+			char c = message.charAt(i);
+			long bit = 1L << c;
+			if ((names && (this.names.triggers[c >>> 6] & bit) != 0) || (shortcuts && (shortcutTriggers[c >>> 6] & bit) != 0)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * Replaces every emoji name (and shortcut, if enabled) in the specified message with its emoji, colored as
+	 * specified.
+	 *
+	 * @param message The message to convert.
+	 * @param from The index to start searching at, i.e. the first trigger character.
+	 * @param shortcuts If shortcuts should be replaced too.
+	 * @param coloring How the emojis are colored.
+	 * @param maxLength The length the converted message may grow to, or 0 for no limit.
+	 * @param metrics The metrics to count the replacements in, or null to not count them.
+	 * @param usage Called with the priority of every replaced shortcut and emoji (the shortcuts in order, then the
+	 * emojis in list order), or null.
+	 * @return The converted message, or the same message instance if nothing was replaced.
+	 */
+	public String replace(String message, int from, boolean shortcuts, EmojiColoring coloring, int maxLength, EmojiChatMetrics metrics, IntConsumer usage) {
+		Matches matches = find(message, from, true, shortcuts);
+		if (matches == null) { // Nothing to replace
+			return message;
+		}
+		
+		StringBuilder builder = new StringBuilder(message.length() + matches.count * coloring.expectedLength());
+		if (!append(message, matches, coloring, maxLength, metrics, usage, builder)) { // Too long even without colors
+			return message;
+		}
+		return builder.toString();
+	}
+	
+	/**
+	 * Appends the specified message to the builder, with every emoji name (and shortcut, if enabled) replaced with its
+	 * emoji, colored as specified.
+	 *
+	 * @param message The message to convert.
+	 * @param from The index to start searching at, i.e. the first trigger character.
+	 * @param shortcuts If shortcuts should be replaced too.
+	 * @param coloring How the emojis are colored.
+	 * @param maxLength The length the converted message may grow to, or 0 for no limit.
+	 * @param metrics The metrics to count the replacements in, or null to not count them.
+	 * @param usage Called with the priority of every replaced shortcut and emoji (the shortcuts in order, then the
+	 * emojis in list order), or null.
+	 * @param builder The builder to append to.
+	 */
+	public void appendReplaced(CharSequence message, int from, boolean shortcuts, EmojiColoring coloring, int maxLength, EmojiChatMetrics metrics, IntConsumer usage, StringBuilder builder) {
+		Matches matches = find(message, from, true, shortcuts);
+		if (matches == null) { // Nothing to replace
+			builder.append(message);
+			return;
+		}
+		
+		builder.ensureCapacity(builder.length() + message.length() + matches.count * coloring.expectedLength());
+		append(message, matches, coloring, maxLength, metrics, usage, builder);
+	}
+	
+	/**
+	 * Appends the specified message to the builder, with the accepted matches replaced. If the converted message
+	 * grows past the maximum length, it's converted again without colors, and if it's still too long (shortcuts for
+	 * emojis that don't exist grow), the message is appended as-is.
+	 *
+	 * @param message The message to convert.
+	 * @param matches The matches in the message.
+	 * @param coloring How the emojis are colored.
+	 * @param maxLength The length the converted message may grow to, or 0 for no limit.
+	 * @param metrics The metrics to count the replacements in, or null to not count them.
+	 * @param usage Called with the priority of every replaced shortcut and emoji, or null.
+	 * @param builder The builder to append to.
+	 * @return True if the message was converted, false if it was appended as-is.
+	 */
+	private boolean append(CharSequence message, Matches matches, EmojiColoring coloring, int maxLength, EmojiChatMetrics metrics, IntConsumer usage, StringBuilder builder) {
+		int mark = builder.length();
+		int limit = maxLength > 0 ? Math.max(maxLength, message.length()) : Integer.MAX_VALUE; // Never refuse what was already there
+		write(message, matches, coloring, builder);
+		boolean converted = true;
+		if (builder.length() - mark > limit) {
+			builder.setLength(mark);
+			write(message, matches, EmojiColoring.NONE, builder);
+			if (builder.length() - mark > limit) {
+				builder.setLength(mark);
+				builder.append(message);
+				converted = false;
+			}
+			if (metrics != null) {
+				metrics.degraded();
+			}
+		}
+		
+		if (metrics != null) {
+			count(message, converted ? matches : null, builder, mark, metrics);
+		}
+		if (usage != null && converted) {
+			for (int k = 0; k < matches.count; k++) {
+				if (matches.accepted[k]) {
+					usage.accept(matches.priorities[k]);
+				}
+			}
+		}
+		return converted;
+	}
+	
+	/**
+	 * Writes the specified message to the builder, with the accepted matches replaced. The formatting state is tracked
+	 * while the text between the matches is written, so the emojis only change the colors they have to.
+	 *
+	 * @param message The message to convert.
+	 * @param matches The matches in the message.
+	 * @param coloring How the emojis are colored.
+	 * @param builder The builder to append to.
+	 */
+	private void write(CharSequence message, Matches matches, EmojiColoring coloring, StringBuilder builder) {
+		EmojiColoring.Output output = coloring.output(builder);
+		int last = 0;
+		for (int k = 0; k < matches.count; k++) {
+			if (!matches.accepted[k]) {
+				continue;
+			}
+			output.text(message, last, matches.starts[k]);
+			int priority = matches.priorities[k];
+			char emoji = emojiOf(priority);
+			if (emoji == 0 && priority < shortcutNames.length) { // Shortcut for an emoji that doesn't exist, leave the name like before
+				output.text(shortcutNames[priority], 0, shortcutNames[priority].length());
+			} else if (emoji == 0) { // No glyph in this ResourcePack variant, leave it as it was typed
+				output.text(message, matches.starts[k], matches.ends[k]);
+			} else {
+				output.emoji(emoji);
+			}
+			last = matches.ends[k];
+		}
+		output.text(message, last, message.length());
+	}
+	
+	/**
+	 * Counts the replacements in the specified metrics.
+	 *
+	 * @param message The converted message.
+	 * @param matches The matches in the message, or null if nothing was replaced.
+	 * @param builder The builder the converted message was appended to.
+	 * @param mark The builder length before the converted message.
+	 * @param metrics The metrics to count the replacements in.
+	 */
+	private void count(CharSequence message, Matches matches, StringBuilder builder, int mark, EmojiChatMetrics metrics) {
+		int emojis = 0;
+		int shortcuts = 0;
+		for (int k = 0; matches != null && k < matches.count; k++) {
+			if (!matches.accepted[k]) {
+				continue;
+			}
+			if (matches.priorities[k] < shortcutNames.length) {
+				shortcuts++;
+			} else {
+				emojis++;
+			}
+		}
+		metrics.replaced(emojis, shortcuts, utf8Length(builder, mark, builder.length()) - utf8Length(message, 0, message.length()));
+	}
+	
+	/**
+	 * Gets the UTF-8 length of part of the specified text.
+	 *
+	 * @param text The text.
+	 * @param from The start index, inclusive.
+	 * @param to The end index, exclusive.
+	 * @return The number of UTF-8 bytes.
+	 */
+	private static int utf8Length(CharSequence text, int from, int to) {
+		int bytes = 0;
+		for (int i = from; i < to; i++) {
+			bytes += utf8Length(text.charAt(i));
+		}
+		return bytes;
+	}
+	
+	/**
+	 * Gets the UTF-8 length of the specified character.
+	 *
+	 * @param c The character.
+	 * @return The number of UTF-8 bytes.
+	 */
+	private static int utf8Length(char c) {
+		return c < 0x80 ? 1 : c < 0x800 ? 2 : Character.isSurrogate(c) ? 2 : 3; // A surrogate pair is 4 bytes in total
+	}
+	
+	/**
+	 * Replaces every shortcut in the specified message with the emoji name it stands for.
+	 *
+	 * @param message The message to convert.
+	 * @param from The index to start searching at, i.e. the first trigger character.
+	 * @return The converted message, or the same message instance if nothing was replaced.
+	 */
+	public String replaceShortcuts(String message, int from) {
+		Matches matches = find(message, from, false, true);
+		if (matches == null) { // Nothing to replace
+			return message;
+		}
+		
+		StringBuilder builder = new StringBuilder(message.length() + matches.count * 16);
+		int last = 0;
+		for (int k = 0; k < matches.count; k++) {
+			if (matches.accepted[k]) {
+				builder.append(message, last, matches.starts[k]).append(shortcutNames[matches.priorities[k]]);
+				last = matches.ends[k];
+			}
+		}
+		return builder.append(message, last, message.length()).toString();
+	}
+	
+	/**
+	 * Gets the emoji character for the specified match priority.
+	 *
+	 * @param priority The match priority.
+	 * @return The emoji character, or 0 if the shortcut points at an unknown emoji or the emoji has no glyph.
+	 */
+	private char emojiOf(int priority) {
+		return priority < shortcutNames.length ? shortcutEmojis[priority] : glyphs[priority - shortcutNames.length];
+	}
+	
+	/**
+	 * Finds the longest match starting at each position of the message, then resolves overlapping matches.
+	 *
+	 * @param message The message to search.
+	 * @param from The index to start searching at.
+	 * @param names If emoji names should be matched.
+	 * @param shortcuts If shortcuts should be matched.
+	 * @return The matches, or null if there aren't any.
+	 */
+	private Matches find(CharSequence message, int from, boolean names, boolean shortcuts) {
+		int length = message.length();
+		Matches matches = null;
+		
+		for (int i = from; i < length; i++) {
+			char c = message.charAt(i);
+			int end = -1;
+			int priority = -1;
+			if (names) {
+				Node node = this.names.root.child(c);
+				for (int j = i + 1; node != null; j++) {
+					if (node.value >= 0) {
+						end = j;
+						priority = shortcutNames.length + node.value; // Names come after the shortcuts
+					}
+					node = j < length ? node.child(message.charAt(j)) : null;
+				}
+			}
+			if (names && (this.names.unicodeTriggers[c >>> 6] & (1L << c)) != 0) {
+				long unicode = matchUnicode(message, i, length);
+				if (unicode >= 0 && (int) (unicode >>> 32) > end) {
+					end = skipJoined(message, (int) (unicode >>> 32), length);
+					priority = shortcutNames.length + (int) unicode;
+				}
+			}
+			if (shortcuts) {
+				Node node = shortcutRoot.child(c);
+				for (int j = i + 1; node != null; j++) {
+					if (node.value >= 0 && j >= end) { // The longest match wins, a shortcut wins a tie
+						end = j;
+						priority = node.value;
+					}
+					node = j < length ? node.child(message.charAt(j)) : null;
+				}
+			}
+			
+			if (end >= 0) {
+				if (matches == null) {
+					matches = new Matches();
+				}
+				matches.add(i, end, priority);
+			}
+		}
+		
+		if (matches != null) {
+			matches.accepted = resolveOverlaps(matches.starts, matches.ends, matches.priorities, matches.count);
+		}
+		return matches;
+	}
+	
+	/**
+	 * Checks if the specified code point only modifies the emoji before it: a variation selector or a skin tone.
+	 *
+	 * @param codePoint The code point.
+	 * @return True if the code point is a modifier, false otherwise.
+	 */
+	private static boolean isModifier(int codePoint) {
+		return codePoint == 0xFE0E || codePoint == 0xFE0F || (codePoint >= 0x1F3FB && codePoint <= 0x1F3FF);
+	}
+	
+	/**
+	 * Checks if the specified code point occurs in emoji zero width joiner sequences: the signs and symbols that are
+	 * joined to people and objects (gender, medical, scales, airplane, heart, arrow), the emoji block and the
+	 * modifiers.
+	 *
+	 * @param codePoint The code point after a zero width joiner.
+	 * @return True if the code point is dropped with the joiner, false if it's text.
+	 */
+	private static boolean isJoinedComponent(int codePoint) {
+		switch (codePoint) {
+			case 0x2640: // Female sign
+			case 0x2642: // Male sign
+			case 0x2695: // Staff of Aesculapius
+			case 0x2696: // Scales
+			case 0x2708: // Airplane
+			case 0x2764: // Heart
+			case 0x27A1: // Right arrow
+				return true;
+			default:
+				return (codePoint >= 0x1F000 && codePoint <= 0x1FAFF) || isModifier(codePoint);
+		}
+	}
+	
+	/**
+	 * Finds the longest Unicode emoji sequence starting at the specified index. Modifiers inside the sequence are
+	 * skipped.
+	 *
+	 * @param message The message.
+	 * @param from The index the sequence starts at.
+	 * @param length The message length.
+	 * @return The end of the sequence in the high 32 bits and the emoji's position in the list in the low 32 bits, or
+	 * -1 if no sequence starts there.
+	 */
+	private long matchUnicode(CharSequence message, int from, int length) {
+		CodePointTrie unicode = names.unicode;
+		int node = CodePointTrie.ROOT;
+		long match = -1;
+		for (int j = from; j < length; ) {
+			int codePoint = Character.codePointAt(message, j);
+			if (node != CodePointTrie.ROOT && isModifier(codePoint)) { // Doesn't change which emoji it is
+				j += Character.charCount(codePoint);
+				continue;
+			}
+			node = unicode.child(node, codePoint);
+			if (node < 0) {
+				break;
+			}
+			j += Character.charCount(codePoint);
+			if (unicode.value(node) >= 0) {
+				match = (long) j << 32 | unicode.value(node);
+			}
+		}
+		return match;
+	}
+	
+	/**
+	 * Skips the modifiers after a Unicode emoji, so they're replaced along with it instead of showing up as missing
+	 * characters, and takes the zero width joiner sequence it starts apart: a joiner before another Unicode emoji is
+	 * dropped so that emoji is matched on its own, and a joiner before another emoji component is dropped along with
+	 * what it joins (i.e. the gender sign of a person raising their hand), since the ResourcePack has no glyph for it.
+	 * A joiner before anything else (i.e. text) is dropped on its own, and the text is kept.
+	 *
+	 * @param message The message.
+	 * @param from The end of the emoji.
+	 * @param length The message length.
+	 * @return The end of the emoji, its modifiers and the components dropped with it.
+	 */
+	private int skipJoined(CharSequence message, int from, int length) {
+		int end = skipModifiers(message, from, length);
+		while (end < length && message.charAt(end) == ZWJ) {
+			int next = end + 1;
+			if (next >= length || matchUnicode(message, next, length) >= 0) { // Nothing left, or an emoji of its own
+				return next;
+			}
+			int codePoint = Character.codePointAt(message, next);
+			if (!isJoinedComponent(codePoint)) { // Not part of an emoji sequence, only drop the joiner
+				return next;
+			}
+			end = skipModifiers(message, next + Character.charCount(codePoint), length);
+		}
+		return end;
+	}
+	
+	/**
+	 * Skips the modifiers at the specified index.
+	 *
+	 * @param message The message.
+	 * @param from The index to start at.
+	 * @param length The message length.
+	 * @return The index of the first code point that isn't a modifier.
+	 */
+	private static int skipModifiers(CharSequence message, int from, int length) {
+		int end = from;
+		while (end < length) {
+			int codePoint = Character.codePointAt(message, end);
+			if (!isModifier(codePoint)) {
+				return end;
+			}
+			end += Character.charCount(codePoint);
+		}
+		return end;
+	}
+	
+	/**
+	 * Decides which of the found matches are replaced. Matches are sorted by start position; each cluster of
+	 * overlapping matches is resolved by accepting matches in priority order (then left to right) as long as they don't
+	 * overlap an already accepted match.
+	 *
+	 * @param starts The match start positions, in ascending order.
+	 * @param ends The match end positions (exclusive).
+	 * @param priorities The match priorities.
+	 * @param count The number of matches.
+	 * @return Which matches are accepted.
+	 */
+	private boolean[] resolveOverlaps(int[] starts, int[] ends, int[] priorities, int count) {
+		boolean[] accepted = new boolean[count];
+		
+		int clusterStart = 0;
+		while (clusterStart < count) {
+			int clusterEnd = clusterStart + 1;
+			int maxEnd = ends[clusterStart];
+			while (clusterEnd < count && starts[clusterEnd] < maxEnd) {
+				maxEnd = Math.max(maxEnd, ends[clusterEnd++]);
+			}
+			
+			if (clusterEnd - clusterStart == 1) { // No overlaps, the common case
+				accepted[clusterStart] = true;
+			} else {
+				resolveCluster(starts, ends, priorities, clusterStart, clusterEnd, accepted);
+			}
+			clusterStart = clusterEnd;
+		}
+		return accepted;
+	}
+	
+	/**
+	 * Resolves a cluster of overlapping matches in one sweep over the matches sorted by priority, then start position.
+	 * The accepted matches never overlap, so a match only has to be checked against the closest accepted match on
+	 * either side of it.
+	 *
+	 * @param starts The match start positions, in ascending order.
+	 * @param ends The match end positions (exclusive).
+	 * @param priorities The match priorities.
+	 * @param clusterStart The first match of the cluster.
+	 * @param clusterEnd The end of the cluster (exclusive).
+	 * @param accepted Which matches are accepted, filled in for the cluster.
+	 */
+	private static void resolveCluster(int[] starts, int[] ends, int[] priorities, int clusterStart, int clusterEnd, boolean[] accepted) {
+		long[] order = new long[clusterEnd - clusterStart];
+		for (int k = clusterStart; k < clusterEnd; k++) {
+			order[k - clusterStart] = (long) priorities[k] << 32 | k; // Sorts by priority, then by start position
+		}
+		Arrays.sort(order);
+		
+		TreeSet<Integer> taken = new TreeSet<>();
+		for (long entry : order) {
+			int k = (int) entry;
+			Integer before = taken.lower(k);
+			Integer after = taken.higher(k);
+			if ((before == null || ends[before] <= starts[k]) && (after == null || ends[k] <= starts[after])) {
+				accepted[k] = true;
+				taken.add(k);
+			}
+		}
+	}
+	
+	/**
+	 * The matches found in a message.
+	 */
+	private static class Matches {
+		/**
+		 * The match start positions, in ascending order.
+		 */
+		private int[] starts = new int[8];
+		/**
+		 * The match end positions (exclusive).
+		 */
+		private int[] ends = new int[8];
+		/**
+		 * The match priorities.
+		 */
+		private int[] priorities = new int[8];
+		/**
+		 * Which matches are replaced, once overlaps have been resolved.
+		 */
+		private boolean[] accepted;
+		/**
+		 * The number of matches.
+		 */
+		private int count;
+		
+		/**
+		 * Adds a match.
+		 *
+		 * @param start The match start position.
+		 * @param end The match end position (exclusive).
+		 * @param priority The match priority.
+		 */
+		private void add(int start, int end, int priority) {
+			if (count == starts.length) {
+				starts = Arrays.copyOf(starts, count * 2);
+				ends = Arrays.copyOf(ends, count * 2);
+				priorities = Arrays.copyOf(priorities, count * 2);
+			}
+			starts[count] = start;
+			ends[count] = end;
+			priorities[count++] = priority;
+		}
+	}
+	
+	/**
+	 * The compiled emoji names.
+	 */
+	private static final class Names {
+		/**
+		 * The root node of the name trie.
+		 */
+		private final Node root;
+		/**
+		 * Bit set of the characters emoji names start with, indexed by character.
+		 */
+		private final long[] triggers;
+		/**
+		 * The emoji character for each emoji, in list order.
+		 */
+		private final char[] emojis;
+		/**
+		 * The Unicode emoji sequences, with the emoji's position in the list as the value.
+		 */
+		private final CodePointTrie unicode;
+		/**
+		 * Bit set of the characters Unicode emojis start with, indexed by character.
+		 */
+		private final long[] unicodeTriggers;
+		
+		/**
+		 * Compiles the specified emoji names.
+		 *
+		 * @param index The emojis to compile.
+		 */
+		private Names(EmojiIndex index) {
+			root = new Node();
+			triggers = new long[1024];
+			emojis = new char[index.size()];
+			for (int i = 0; i < index.size(); i++) {
+				root.insert(index.getName(i), i);
+				setTrigger(triggers, index.getName(i));
+				emojis[i] = index.getEmoji(i);
+			}
+			
+			int[][] sequences = new int[index.getUnicodeCount()][];
+			int[] values = new int[sequences.length];
+			unicodeTriggers = new long[1024];
+			for (int i = 0; i < sequences.length; i++) {
+				sequences[i] = index.getUnicode(i);
+				values[i] = index.getUnicodeEmoji(i);
+				String first = new String(sequences[i], 0, 1); // The first character, a high surrogate outside the BMP
+				setTrigger(unicodeTriggers, first);
+				setTrigger(triggers, first);
+			}
+			unicode = new CodePointTrie(sequences, values);
+		}
+	}
+	
+	/**
+	 * A trie node, with its children kept in a sorted array.
+	 */
+	private static class Node {
+		/**
+		 * The sorted characters leading to the children.
+		 */
+		private char[] keys = new char[0];
+		/**
+		 * The children, in the same order as {@link #keys}.
+		 */
+		private Node[] children = new Node[0];
+		/**
+		 * The priority of the pattern ending at this node, or -1 if no pattern ends here.
+		 */
+		private int value = -1;
+		
+		/**
+		 * Gets the child for the specified character.
+		 *
+		 * @param c The character.
+		 * @return The child, or null if there isn't one.
+		 */
+		private Node child(char c) {
+			int index = Arrays.binarySearch(keys, c);
+			return index >= 0 ? children[index] : null;
+		}
+		
+		/**
+		 * Finds the node the specified pattern ends at.
+		 *
+		 * @param pattern The pattern to find.
+		 * @return The node, or null if no inserted pattern starts with it.
+		 */
+		private Node find(String pattern) {
+			Node node = this;
+			for (int i = 0; i < pattern.length() && node != null; i++) {
+				node = node.child(pattern.charAt(i));
+			}
+			return node;
+		}
+		
+		/**
+		 * Inserts the specified pattern below this node.
+		 *
+		 * @param pattern The pattern to insert.
+		 * @param priority The pattern's priority. If the pattern is already present, the first priority is kept.
+		 */
+		private void insert(String pattern, int priority) {
+			Node node = this;
+			for (int i = 0; i < pattern.length(); i++) {
+				char c = pattern.charAt(i);
+				int index = Arrays.binarySearch(node.keys, c);
+				if (index < 0) {
+					index = -index - 1;
+					char[] keys = new char[node.keys.length + 1];
+					Node[] children = new Node[node.children.length + 1];
+					System.arraycopy(node.keys, 0, keys, 0, index);
+					System.arraycopy(node.children, 0, children, 0, index);
+					System.arraycopy(node.keys, index, keys, index + 1, node.keys.length - index);
+					System.arraycopy(node.children, index, children, index + 1, node.children.length - index);
+					keys[index] = c;
+					children[index] = new Node();
+					node.keys = keys;
+					node.children = children;
+				}
+				node = node.children[index];
+			}
+			if (node.value < 0) {
+				node.value = priority;
+			}
+		}
+	}
+}
@@ -0,0 +1,576 @@
+package io.github.radbuilder.emojichat.utils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable snapshot of everything needed to translate messages: the emojis, the shortcuts, the compiled matcher, the
+ * coloring setting, the glyphs of the ResourcePack variant, the translation cache for those settings, and the usage
+ * counters of the emojis and shortcuts.
+ * <p>
+ * A new table is built off to the side on every load and then published in one go, so translating threads never
+ * take a lock and never see a half-filled table. {@link #update(LinkedHashMap, boolean, int)} builds the next table from
+ * this one, so a reload only compiles what changed.
+ *
+ * @author RadBuilder
+ * @version 1.8.1
+ * @since 1.8.1
+ */
+public final class EmojiTable {
+	/**
+	 * An empty table, which doesn't translate anything.
+	 */
+	public static final EmojiTable EMPTY = new EmojiTable(EmojiIndex.EMPTY, new LinkedHashMap<>(), false, 0, new LongAdder());
+	/**
+	 * The default {@link #maxLength}: no limit. 256 characters is only the limit on what a client may send; messages
+	 * the server sends out can be a lot longer, so a limit is only needed for things like chat bridges.
+	 */
+	public static final int DEFAULT_MAX_LENGTH = 0;
+	
+	/**
+	 * The emojis, in list order.
+	 */
+	private final EmojiIndex emojis;
+	/**
+	 * Map view of the {@link #emojis}, only built if someone asks for it.
+	 */
+	private volatile Map<String, Character> emojiMap;
+	/**
+	 * Shortcuts for the emojis, mapped to the emoji name they stand for, in config order.
+	 */
+	private final Map<String, String> shortcuts;
+	/**
+	 * If we should fix the emoji's color (colored chat removes emoji coloring)
+	 */
+	private final boolean fixColoring;
+	/**
+	 * The length a translated message may grow to, or 0 for no limit. Longer messages get fewer colors, or no emojis.
+	 */
+	private final int maxLength;
+	/**
+	 * The maximum number of cached translations, or 0 if translations aren't cached.
+	 */
+	private final int cacheSize;
+	/**
+	 * The cached translations, or null if translations aren't cached. A new table gets a new cache, so translations
+	 * made with old settings are never used.
+	 */
+	private final TranslationCache<Translation> cache;
+	/**
+	 * The compiled matcher for the {@link #emojis} and {@link #shortcuts}.
+	 */
+	private final EmojiMatcher emojiMatcher;
+	/**
+	 * The glyphs of the ResourcePack variant, or null if every emoji has its glyph.
+	 */
+	private final GlyphTable glyphs;
+	/**
+	 * Counts the messages that were returned untouched because they don't contain a single trigger character.
+	 */
+	private final LongAdder fastPaths;
+	/**
+	 * The usage counters the {@link #usageCounters} come from, shared between reloads, or null if usage isn't counted.
+	 */
+	private final EmojiUsage usage;
+	/**
+	 * The usage counter of each match priority: the shortcuts in order, then the emojis in list order. Null if usage
+	 * isn't counted.
+	 */
+	private final LongAdder[] usageCounters;
+	/**
+	 * Counts a replaced shortcut or emoji in the {@link #usageCounters}, or null if usage isn't counted.
+	 */
+	private final IntConsumer usageCounter;
+	
+	/**
+	 * Creates the emoji table. The shortcuts are copied, so changing them afterwards doesn't affect the table.
+	 *
+	 * @param emojis The emojis.
+	 * @param shortcuts The shortcuts, mapped to the emoji name they stand for (i.e. :grinning:), in config order.
+	 * @param fixColoring If emoji coloring should be fixed.
+	 */
+	public EmojiTable(EmojiIndex emojis, LinkedHashMap<String, String> shortcuts, boolean fixColoring) {
+		this(emojis, shortcuts, fixColoring, DEFAULT_MAX_LENGTH, new LongAdder());
+	}
+	
+	/**
+	 * Creates the emoji table, counting fast path messages in the specified counter. The shortcuts are copied, so
+	 * changing them afterwards doesn't affect the table.
+	 *
+	 * @param emojis The emojis.
+	 * @param shortcuts The shortcuts, mapped to the emoji name they stand for (i.e. :grinning:), in config order.
+	 * @param fixColoring If emoji coloring should be fixed.
+	 * @param maxLength The length a translated message may grow to, or 0 for no limit.
+	 * @param fastPaths The counter for messages without any trigger character, shared between reloads.
+	 */
+	public EmojiTable(EmojiIndex emojis, LinkedHashMap<String, String> shortcuts, boolean fixColoring, int maxLength, LongAdder fastPaths) {
+		this(emojis, shortcuts, fixColoring, maxLength, fastPaths, null);
+	}
+	
+	/**
+	 * Creates the emoji table, counting fast path messages and emoji and shortcut usage in the specified counters. The
+	 * shortcuts are copied, so changing them afterwards doesn't affect the table.
+	 *
+	 * @param emojis The emojis.
+	 * @param shortcuts The shortcuts, mapped to the emoji name they stand for (i.e. :grinning:), in config order.
+	 * @param fixColoring If emoji coloring should be fixed.
+	 * @param maxLength The length a translated message may grow to, or 0 for no limit.
+	 * @param fastPaths The counter for messages without any trigger character, shared between reloads.
+	 * @param usage The usage counters, shared between reloads, or null to not count usage.
+	 */
+	public EmojiTable(EmojiIndex emojis, LinkedHashMap<String, String> shortcuts, boolean fixColoring, int maxLength, LongAdder fastPaths, EmojiUsage usage) {
+		this.emojis = emojis;
+		this.shortcuts = Collections.unmodifiableMap(new LinkedHashMap<>(shortcuts));
+		this.fixColoring = fixColoring;
+		this.maxLength = maxLength;
+		this.fastPaths = fastPaths;
+		this.usage = usage;
+		emojiMatcher = new EmojiMatcher(this.emojis, this.shortcuts);
+		glyphs = null;
+		cacheSize = 0;
+		cache = null;
+		usageCounters = usage != null ? usage.counters(this.emojis, this.shortcuts) : null;
+		usageCounter = usageCounters != null ? priority -> usageCounters[priority].increment() : null;
+	}
+	
+	/**
+	 * Creates the emoji table from an already compiled matcher.
+	 *
+	 * @param emojis The emojis.
+	 * @param shortcuts The read-only shortcuts, in config order.
+	 * @param fixColoring If emoji coloring should be fixed.
+	 * @param maxLength The length a translated message may grow to, or 0 for no limit.
+	 * @param fastPaths The counter for messages without any trigger character, shared between reloads.
+	 * @param usage The usage counters, shared between reloads, or null to not count usage.
+	 * @param glyphs The glyphs of the ResourcePack variant, or null if every emoji has its glyph.
+	 * @param emojiMatcher The compiled matcher for the emojis, shortcuts and glyphs.
+	 * @param cacheSize The maximum number of cached translations, or 0 to not cache translations.
+	 */
+	private EmojiTable(EmojiIndex emojis, Map<String, String> shortcuts, boolean fixColoring, int maxLength, LongAdder fastPaths, EmojiUsage usage, GlyphTable glyphs, EmojiMatcher emojiMatcher, int cacheSize) {
+		this.emojis = emojis;
+		this.shortcuts = shortcuts;
+		this.fixColoring = fixColoring;
+		this.maxLength = maxLength;
+		this.fastPaths = fastPaths;
+		this.usage = usage;
+		this.glyphs = glyphs;
+		this.emojiMatcher = emojiMatcher;
+		this.cacheSize = cacheSize;
+		cache = cacheSize > 0 ? new TranslationCache<>(cacheSize) : null;
+		usageCounters = usage != null ? usage.counters(emojis, shortcuts) : null;
+		usageCounter = usageCounters != null ? priority -> usageCounters[priority].increment() : null;
+	}
+	
+	/**
+	 * Creates a table with the same emojis as this one and the specified settings, only compiling what changed: the
+	 * emoji names are never compiled again, and the shortcuts only if they differ from this table's shortcuts.
+	 *
+	 * @param shortcuts The shortcuts, mapped to the emoji name they stand for (i.e. :grinning:), in config order.
+	 * @param fixColoring If emoji coloring should be fixed.
+	 * @param maxLength The length a translated message may grow to, or 0 for no limit.
+	 * @return The new table, or this table if nothing changed.
+	 */
+	public EmojiTable update(LinkedHashMap<String, String> shortcuts, boolean fixColoring, int maxLength) {
+		if (!sameShortcuts(shortcuts)) {
+			Map<String, String> newShortcuts = Collections.unmodifiableMap(new LinkedHashMap<>(shortcuts));
+			return new EmojiTable(emojis, newShortcuts, fixColoring, maxLength, fastPaths, usage, glyphs, emojiMatcher.withShortcuts(newShortcuts), cacheSize);
+		}
+		if (fixColoring == this.fixColoring && maxLength == this.maxLength) {
+			return this;
+		}
+		return new EmojiTable(emojis, this.shortcuts, fixColoring, maxLength, fastPaths, usage, glyphs, emojiMatcher, cacheSize);
+	}
+	
+	/**
+	 * Creates a table with the same settings as this one that caches up to the specified number of translations.
+	 *
+	 * @param cacheSize The maximum number of cached translations, or 0 to not cache translations.
+	 * @return The new table, or this table if it already has that cache size.
+	 */
+	public EmojiTable withCacheSize(int cacheSize) {
+		cacheSize = Math.max(0, cacheSize);
+		return cacheSize == this.cacheSize ? this : new EmojiTable(emojis, shortcuts, fixColoring, maxLength, fastPaths, usage, glyphs, emojiMatcher, cacheSize);
+	}
+	
+	/**
+	 * Creates a table with the same settings as this one for another ResourcePack variant. The compiled emoji names and
+	 * shortcuts are shared; emojis the variant has no glyph for are left as they were typed.
+	 *
+	 * @param glyphs The variant's glyphs, for the same emojis as this table.
+	 * @return The new table, or this table if it already has those glyphs.
+	 */
+	public EmojiTable withGlyphs(GlyphTable glyphs) {
+		if (glyphs == this.glyphs) {
+			return this;
+		}
+		if (glyphs.getIndex() != emojis) {
+			throw new IllegalArgumentException("The glyphs are for another emoji index");
+		}
+		return new EmojiTable(emojis, shortcuts, fixColoring, maxLength, fastPaths, usage, glyphs, emojiMatcher.withGlyphs(glyphs), cacheSize);
+	}
+	
+	/**
+	 * Checks if the specified shortcuts are the same as this table's shortcuts, in the same order (the order decides
+	 * which overlapping shortcut wins).
+	 *
+	 * @param shortcuts The shortcuts to compare.
+	 * @return True if the shortcuts are the same, false otherwise.
+	 */
+	private boolean sameShortcuts(Map<String, String> shortcuts) {
+		if (shortcuts.size() != this.shortcuts.size()) {
+			return false;
+		}
+		Iterator<Map.Entry<String, String>> iterator = this.shortcuts.entrySet().iterator();
+		for (Map.Entry<String, String> entry : shortcuts.entrySet()) {
+			Map.Entry<String, String> current = iterator.next();
+			if (!entry.getKey().equals(current.getKey()) || !entry.getValue().equals(current.getValue())) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Gets the {@link #emojis}.
+	 *
+	 * @return The {@link #emojis}.
+	 */
+	public EmojiIndex getEmojiIndex() {
+		return emojis;
+	}
+	
+	/**
+	 * Gets the {@link #emojis} as a map from emoji name to emoji character. The map is built on first use.
+	 *
+	 * @return The read-only emojis map, in list order.
+	 */
+	public Map<String, Character> getEmojis() {
+		Map<String, Character> map = emojiMap;
+		if (map == null) {
+			LinkedHashMap<String, Character> emojiMap = new LinkedHashMap<>();
+			for (int i = 0; i < emojis.size(); i++) {
+				emojiMap.put(emojis.getName(i), emojis.getEmoji(i));
+			}
+			this.emojiMap = map = Collections.unmodifiableMap(emojiMap);
+		}
+		return map;
+	}
+	
+	/**
+	 * Gets the {@link #glyphs} of the ResourcePack variant.
+	 *
+	 * @return The {@link #glyphs}, or null if every emoji has its glyph.
+	 */
+	public GlyphTable getGlyphs() {
+		return glyphs;
+	}
+	
+	/**
+	 * Gets the {@link #shortcuts} map.
+	 *
+	 * @return The read-only {@link #shortcuts} map.
+	 */
+	public Map<String, String> getShortcuts() {
+		return shortcuts;
+	}
+	
+	/**
+	 * If emoji coloring should be fixed.
+	 *
+	 * @return True if emoji coloring should be fixed, false otherwise.
+	 */
+	public boolean fixColoring() {
+		return fixColoring;
+	}
+	
+	/**
+	 * Gets the length a translated message may grow to.
+	 *
+	 * @return The maximum length, or 0 for no limit.
+	 */
+	public int getMaxLength() {
+		return maxLength;
+	}
+	
+	/**
+	 * Gets the maximum number of cached translations.
+	 *
+	 * @return The maximum number of cached translations, or 0 if translations aren't cached.
+	 */
+	public int getCacheSize() {
+		return cacheSize;
+	}
+	
+	/**
+	 * Gets the number of cached translations.
+	 *
+	 * @return The number of cached translations.
+	 */
+	public int getCachedCount() {
+		return cache != null ? cache.size() : 0;
+	}
+	
+	/**
+	 * Gets how many messages were returned untouched because they don't contain a single trigger character.
+	 *
+	 * @return The number of fast path messages.
+	 */
+	public long getFastPathCount() {
+		return fastPaths.sum();
+	}
+	
+	/**
+	 * Translates the specified message's shortcuts (i.e. :)) and emoji names (i.e. :100:) to emoji in a single pass.
+	 *
+	 * @param message The message to translate.
+	 * @param mode Where the message ends up.
+	 * @param shortcuts If shortcuts should be translated.
+	 * @return The translated message.
+	 */
+	public String translate(String message, TranslationMode mode, boolean shortcuts) {
+		return translate(message, mode, shortcuts, null);
+	}
+	
+	/**
+	 * Translates the specified message's shortcuts (i.e. :)) and emoji names (i.e. :100:) to emoji in a single pass,
+	 * counting the work in the specified metrics.
+	 *
+	 * @param message The message to translate.
+	 * @param mode Where the message ends up.
+	 * @param shortcuts If shortcuts should be translated.
+	 * @param metrics The metrics to count in, or null to not count anything.
+	 * @return The translated message.
+	 */
+	public String translate(String message, TranslationMode mode, boolean shortcuts, EmojiChatMetrics metrics) {
+		if (metrics != null) {
+			metrics.messageScanned();
+		}
+		int from = emojiMatcher.indexOfTrigger(message, true, shortcuts);
+		if (from < 0) { // Nothing that could be an emoji, return the message as-is
+			fastPaths.increment();
+			return message;
+		}
+		
+		if (cache != null && message.length() <= TranslationCache.MAX_MESSAGE_LENGTH) {
+			return translateCached(message, from, mode, shortcuts, metrics);
+		}
+		return emojiMatcher.replace(message, from, shortcuts, coloring(mode), maxLength, metrics, usageCounter);
+	}
+	
+	/**
+	 * Translates the specified message through the translation cache. Cached translations remember which shortcuts
+	 * and emojis they replaced and how many bytes they added, so repeated messages are counted in the usage counters
+	 * and the metrics too.
+	 *
+	 * @param message The message to translate.
+	 * @param from The index of the first trigger character.
+	 * @param mode Where the message ends up.
+	 * @param shortcuts If shortcuts should be translated.
+	 * @param metrics The metrics to count in, or null to not count anything.
+	 * @return The translated message.
+	 */
+	private String translateCached(String message, int from, TranslationMode mode, boolean shortcuts, EmojiChatMetrics metrics) {
+		int variant = mode.ordinal() << 1 | (shortcuts ? 1 : 0);
+		Translation translation = cache.get(message, variant);
+		if (metrics != null) {
+			metrics.cacheLookup(translation != null);
+		}
+		if (translation == null) {
+			UsedPriorities used = usageCounters != null ? new UsedPriorities() : null;
+			Replacements replacements = new Replacements(); // Counted for every lookup below, not just this one
+			String text = emojiMatcher.replace(message, from, shortcuts, coloring(mode), maxLength, replacements, used);
+			translation = new Translation(text, used != null ? used.toArray() : null, replacements);
+			cache.put(message, variant, translation);
+		}
+		if (metrics != null) {
+			translation.replacements.countIn(metrics);
+		}
+		if (translation.used != null) {
+			for (int priority : translation.used) {
+				usageCounters[priority].increment();
+			}
+		}
+		return translation.text;
+	}
+	
+	/**
+	 * Appends the specified text to the builder, with its shortcuts (i.e. :)) and emoji names (i.e. :100:) translated
+	 * to emoji in a single pass. Nothing is copied besides appending to the builder.
+	 *
+	 * @param text The text to translate.
+	 * @param builder The builder to append the translated text to.
+	 * @param mode Where the text ends up.
+	 * @param shortcuts If shortcuts should be translated.
+	 * @param metrics The metrics to count in, or null to not count anything.
+	 */
+	public void appendTranslated(CharSequence text, StringBuilder builder, TranslationMode mode, boolean shortcuts, EmojiChatMetrics metrics) {
+		if (metrics != null) {
+			metrics.messageScanned();
+		}
+		int from = emojiMatcher.indexOfTrigger(text, true, shortcuts);
+		if (from < 0) { // Nothing that could be an emoji, append the text as-is
+			fastPaths.increment();
+			builder.append(text);
+			return;
+		}
+		
+		if (cache != null && text instanceof String && text.length() <= TranslationCache.MAX_MESSAGE_LENGTH) {
+			builder.append(translateCached((String) text, from, mode, shortcuts, metrics));
+			return;
+		}
+		emojiMatcher.appendReplaced(text, from, shortcuts, coloring(mode), maxLength, metrics, usageCounter, builder);
+	}
+	
+	/**
+	 * Gets how emojis are colored.
+	 *
+	 * @param mode Where the message ends up.
+	 * @return The emoji coloring.
+	 */
+	private EmojiColoring coloring(TranslationMode mode) {
+		switch (mode) {
+			case CHAT:
+				return fixColoring ? EmojiColoring.CHAT : EmojiColoring.NONE;
+			case SIGN:
+				return EmojiColoring.SIGN;
+			default:
+				return EmojiColoring.NONE;
+		}
+	}
+	
+	/**
+	 * Replaces shorthand ("shortcuts" in config) with correct emoji shortcuts.
+	 *
+	 * @param message The original message.
+	 * @return The message with correct emoji shortcuts.
+	 */
+	public String translateShorthand(String message) {
+		int from = emojiMatcher.indexOfTrigger(message, false, true);
+		if (from < 0) { // No shortcut can start in this message
+			fastPaths.increment();
+			return message;
+		}
+		return emojiMatcher.replaceShortcuts(message, from);
+	}
+	
+	/**
+	 * A cached translation.
+	 */
+	private static final class Translation {
+		/**
+		 * The translated message.
+		 */
+		private final String text;
+		/**
+		 * The priorities of the replaced shortcuts and emojis, or null if there aren't any or usage isn't counted.
+		 */
+		private final int[] used;
+		/**
+		 * The replacement counts of the translation.
+		 */
+		private final Replacements replacements;
+		
+		/**
+		 * Creates a cached translation.
+		 *
+		 * @param text The translated message.
+		 * @param used The priorities of the replaced shortcuts and emojis, or null.
+		 * @param replacements The replacement counts of the translation.
+		 */
+		private Translation(String text, int[] used, Replacements replacements) {
+			this.text = text;
+			this.used = used;
+			this.replacements = replacements;
+		}
+	}
+	
+	/**
+	 * Collects the replacement counts of one message, so they can be counted in the real metrics every time the cached
+	 * translation is used.
+	 */
+	private static final class Replacements extends EmojiChatMetrics {
+		/**
+		 * The number of replaced emoji names.
+		 */
+		private int emojis;
+		/**
+		 * The number of replaced shortcuts.
+		 */
+		private int shortcuts;
+		/**
+		 * The number of UTF-8 bytes translating added.
+		 */
+		private int bytes;
+		/**
+		 * If the message would have grown too long.
+		 */
+		private boolean degraded;
+		
+		/**
+		 * Creates empty replacement counts, without latency histograms.
+		 */
+		private Replacements() {
+			super(false);
+		}
+		
+		@Override
+		void replaced(int emojis, int shortcuts, int bytes) {
+			this.emojis += emojis;
+			this.shortcuts += shortcuts;
+			this.bytes += bytes;
+		}
+		
+		@Override
+		void degraded() {
+			degraded = true;
+		}
+		
+		/**
+		 * Counts the collected replacements in the specified metrics.
+		 *
+		 * @param metrics The metrics to count in.
+		 */
+		private void countIn(EmojiChatMetrics metrics) {
+			if (degraded) {
+				metrics.degraded();
+			}
+			metrics.replaced(emojis, shortcuts, bytes);
+		}
+	}
+	
+	/**
+	 * Collects the priorities of the shortcuts and emojis replaced in one message.
+	 */
+	private static final class UsedPriorities implements IntConsumer {
+		/**
+		 * The collected priorities.
+		 */
+		private int[] priorities = new int[4];
+		/**
+		 * The number of collected priorities.
+		 */
+		private int count;
+		
+		@Override
+		public void accept(int priority) {
+			if (count == priorities.length) {
+				priorities = Arrays.copyOf(priorities, count * 2);
+			}
+			priorities[count++] = priority;
+		}
+		
+		/**
+		 * Gets the collected priorities.
+		 *
+		 * @return The collected priorities, or null if there aren't any.
+		 */
+		private int[] toArray() {
+			return count > 0 ? Arrays.copyOf(priorities, count) : null;
+		}
+	}
+}
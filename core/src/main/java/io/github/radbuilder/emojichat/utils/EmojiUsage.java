@@ -0,0 +1,264 @@
+package io.github.radbuilder.emojichat.utils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Counts how often each emoji and each shortcut is used, so unused emojis and shortcuts can be found, and keeps the
+ * counts in a snapshot file in the plugin folder across restarts.
+ * <p>
+ * The counters are {@link LongAdder}s, so chat threads replacing emojis at the same time don't contend. Every
+ * {@link EmojiTable} looks up the counters of its emojis and shortcuts once when it's built, in match priority order,
+ * so counting a replacement is one array access and one increment. The counters are kept by name, so counts survive
+ * reloads that change the shortcuts.
+ * <p>
+ * The snapshot has one {@code e <count> <emoji name>} or {@code s <count> <shortcut>} line per used emoji or shortcut,
+ * and is rewritten and swapped in atomically by {@link #flush()}.
+ *
+ * @author RadBuilder
+ * @version 1.8.1
+ * @since 1.8.1
+ */
+public final class EmojiUsage {
+	/**
+	 * The line prefix of emoji counts.
+	 */
+	private static final String EMOJI = "e";
+	/**
+	 * The line prefix of shortcut counts.
+	 */
+	private static final String SHORTCUT = "s";
+	
+	/**
+	 * The snapshot file.
+	 */
+	private final Path file;
+	/**
+	 * The logger to report problems to.
+	 */
+	private final Logger logger;
+	/**
+	 * The emoji counters, by emoji name (i.e. :grinning:).
+	 */
+	private final ConcurrentHashMap<String, LongAdder> emojis;
+	/**
+	 * The shortcut counters, by shortcut (i.e. :)).
+	 */
+	private final ConcurrentHashMap<String, LongAdder> shortcuts;
+	/**
+	 * If the snapshot was read. Nothing is written before, so the old counts aren't lost.
+	 */
+	private volatile boolean loaded;
+	/**
+	 * The total count when the snapshot was last written. Guarded by this object.
+	 */
+	private long flushed;
+	
+	/**
+	 * Creates the usage counters. Nothing is read until {@link #load()} is called.
+	 *
+	 * @param file The snapshot file.
+	 * @param logger The logger to report problems to.
+	 */
+	public EmojiUsage(Path file, Logger logger) {
+		this.file = file;
+		this.logger = logger;
+		emojis = new ConcurrentHashMap<>();
+		shortcuts = new ConcurrentHashMap<>();
+	}
+	
+	/**
+	 * Gets the counters for the specified emojis and shortcuts, in match priority order: the shortcuts first, then the
+	 * emojis, each in order.
+	 *
+	 * @param emojis The emojis.
+	 * @param shortcuts The shortcuts, in config order.
+	 * @return The counters.
+	 */
+	LongAdder[] counters(EmojiIndex emojis, Map<String, String> shortcuts) {
+		LongAdder[] counters = new LongAdder[shortcuts.size() + emojis.size()];
+		int priority = 0;
+		for (String shortcut : shortcuts.keySet()) {
+			counters[priority++] = counter(this.shortcuts, shortcut);
+		}
+		for (int i = 0; i < emojis.size(); i++) {
+			counters[priority++] = counter(this.emojis, emojis.getName(i));
+		}
+		return counters;
+	}
+	
+	/**
+	 * Gets the counter for the specified key, adding it if it isn't there.
+	 *
+	 * @param counters The counters.
+	 * @param key The emoji name or shortcut.
+	 * @return The counter.
+	 */
+	private static LongAdder counter(ConcurrentHashMap<String, LongAdder> counters, String key) {
+		LongAdder counter = counters.get(key);
+		return counter != null ? counter : counters.computeIfAbsent(key, k -> new LongAdder());
+	}
+	
+	/**
+	 * Gets how often the specified emoji was used.
+	 *
+	 * @param name The emoji name, i.e. :grinning:.
+	 * @return The number of uses.
+	 */
+	public long getEmojiCount(String name) {
+		LongAdder counter = emojis.get(name);
+		return counter != null ? counter.sum() : 0;
+	}
+	
+	/**
+	 * Gets the most used emojis.
+	 *
+	 * @param limit The maximum number of emojis to return.
+	 * @return The emoji names with their number of uses, most used first. Emojis that were never used aren't included.
+	 */
+	public List<Map.Entry<String, Long>> getTopEmojis(int limit) {
+		return top(emojis, limit);
+	}
+	
+	/**
+	 * Gets the most used shortcuts.
+	 *
+	 * @param limit The maximum number of shortcuts to return.
+	 * @return The shortcuts with their number of uses, most used first. Shortcuts that were never used aren't
+	 * included.
+	 */
+	public List<Map.Entry<String, Long>> getTopShortcuts(int limit) {
+		return top(shortcuts, limit);
+	}
+	
+	/**
+	 * Gets the highest counts of the specified counters.
+	 *
+	 * @param counters The counters.
+	 * @param limit The maximum number of counts to return.
+	 * @return The keys with their counts, highest first.
+	 */
+	private static List<Map.Entry<String, Long>> top(ConcurrentHashMap<String, LongAdder> counters, int limit) {
+		List<Map.Entry<String, Long>> top = new ArrayList<>();
+		for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+			long count = entry.getValue().sum();
+			if (count > 0) {
+				top.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), count));
+			}
+		}
+		top.sort((a, b) -> a.getValue().equals(b.getValue()) ? a.getKey().compareTo(b.getKey()) : Long.compare(b.getValue(), a.getValue()));
+		return top.size() > limit ? new ArrayList<>(top.subList(0, Math.max(0, limit))) : top;
+	}
+	
+	/**
+	 * Reads the snapshot, if it wasn't read yet, and adds its counts to the counters. Blocks on the disk, so don't call
+	 * this on the main thread.
+	 */
+	public synchronized void load() {
+		if (loaded) {
+			return;
+		}
+		
+		long read = 0;
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				int first = line.indexOf(' ');
+				int second = line.indexOf(' ', first + 1);
+				try {
+					long count = Long.parseLong(line.substring(first + 1, second));
+					String key = line.substring(second + 1);
+					if (line.startsWith(EMOJI + " ")) {
+						counter(emojis, key).add(count);
+						read += count;
+					} else if (line.startsWith(SHORTCUT + " ")) {
+						counter(shortcuts, key).add(count);
+						read += count;
+					}
+				} catch (IllegalArgumentException | IndexOutOfBoundsException e) { // Torn or edited line, skip it
+				}
+			}
+		} catch (NoSuchFileException e) { // Nothing was counted yet
+		} catch (IOException e) {
+			logger.log(Level.WARNING, "Couldn't read the emoji usage from " + file.getFileName(), e);
+		}
+		flushed = read; // Uses counted before the snapshot was read still have to be written
+		loaded = true;
+	}
+	
+	/**
+	 * Writes the counts to the snapshot if they changed since the last write, and swaps it in atomically. Does nothing
+	 * until the snapshot was read. Blocks on the disk, so don't call this on the main thread.
+	 */
+	public synchronized void flush() {
+		long total = total();
+		if (!loaded || total == flushed) { // Counts only go up, so the same total means nothing changed
+			return;
+		}
+		
+		Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+		try {
+			try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+				write(writer, EMOJI, emojis);
+				write(writer, SHORTCUT, shortcuts);
+			}
+			try {
+				Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+			}
+			flushed = total;
+		} catch (IOException e) { // Try again next time
+			logger.log(Level.WARNING, "Couldn't save the emoji usage to " + file.getFileName(), e);
+		}
+	}
+	
+	/**
+	 * Writes the non-zero counts of the specified counters.
+	 *
+	 * @param writer The writer to write to.
+	 * @param prefix The line prefix.
+	 * @param counters The counters.
+	 * @throws IOException If writing fails.
+	 */
+	private static void write(BufferedWriter writer, String prefix, ConcurrentHashMap<String, LongAdder> counters) throws IOException {
+		for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+			long count = entry.getValue().sum();
+			if (count > 0) {
+				writer.write(prefix + " " + count + " " + entry.getKey());
+				writer.newLine();
+			}
+		}
+	}
+	
+	/**
+	 * Gets the total count of all counters.
+	 *
+	 * @return The total count.
+	 */
+	private long total() {
+		long total = 0;
+		for (LongAdder counter : emojis.values()) {
+			total += counter.sum();
+		}
+		for (LongAdder counter : shortcuts.values()) {
+			total += counter.sum();
+		}
+		return total;
+	}
+}
@@ -0,0 +1,113 @@
+package io.github.radbuilder.emojichat.utils;
+
+import java.util.BitSet;
+
+/**
+ * The glyphs one ResourcePack variant has for the emojis of an {@link EmojiIndex}. Variants share the index (the names
+ * and the characters they're assigned), and only differ in which glyph pages their pack ships, so a glyph table is
+ * one character per emoji on top of the shared index.
+ *
+ * @author RadBuilder
+ * @version 1.8.1
+ * @since 1.8.1
+ */
+public final class GlyphTable {
+	/**
+	 * The emoji index the glyphs are for.
+	 */
+	private final EmojiIndex index;
+	/**
+	 * The emoji character for each emoji, in list order, or 0 if the variant has no glyph for it.
+	 */
+	private final char[] glyphs;
+	/**
+	 * The number of emojis with a glyph.
+	 */
+	private final int count;
+	
+	/**
+	 * Creates a glyph table.
+	 *
+	 * @param index The emoji index the glyphs are for.
+	 * @param glyphs The emoji character for each emoji, or 0 if there's no glyph for it.
+	 */
+	private GlyphTable(EmojiIndex index, char[] glyphs) {
+		this.index = index;
+		this.glyphs = glyphs;
+		int count = 0;
+		for (char glyph : glyphs) {
+			if (glyph != 0) {
+				count++;
+			}
+		}
+		this.count = count;
+	}
+	
+	/**
+	 * Creates a glyph table with a glyph for every emoji of the specified index.
+	 *
+	 * @param index The emoji index.
+	 * @return The glyph table.
+	 */
+	public static GlyphTable all(EmojiIndex index) {
+		char[] glyphs = new char[index.size()];
+		for (int i = 0; i < glyphs.length; i++) {
+			glyphs[i] = index.getEmoji(i);
+		}
+		return new GlyphTable(index, glyphs);
+	}
+	
+	/**
+	 * Creates a glyph table for a pack with the specified glyph pages (i.e. unicode_page_5a.png is page 0x5A). Emojis
+	 * whose character lands on a missing page have no glyph.
+	 *
+	 * @param index The emoji index.
+	 * @param pages The glyph pages the pack has, by the high byte of the characters on them.
+	 * @return The glyph table.
+	 */
+	public static GlyphTable forPages(EmojiIndex index, BitSet pages) {
+		char[] glyphs = new char[index.size()];
+		for (int i = 0; i < glyphs.length; i++) {
+			char emoji = index.getEmoji(i);
+			glyphs[i] = pages.get(emoji >>> 8) ? emoji : 0;
+		}
+		return new GlyphTable(index, glyphs);
+	}
+	
+	/**
+	 * Gets the emoji index the glyphs are for.
+	 *
+	 * @return The emoji index.
+	 */
+	public EmojiIndex getIndex() {
+		return index;
+	}
+	
+	/**
+	 * Gets the character of the specified emoji, if the variant has a glyph for it.
+	 *
+	 * @param emoji The emoji's position in the list.
+	 * @return The emoji character, or 0 if the variant has no glyph for it.
+	 */
+	public char getGlyph(int emoji) {
+		return glyphs[emoji];
+	}
+	
+	/**
+	 * Gets the number of emojis the variant has a glyph for.
+	 *
+	 * @return The number of emojis with a glyph.
+	 */
+	public int getGlyphCount() {
+		return count;
+	}
+	
+	/**
+	 * Gets the glyphs as an array, without copying it. Don't modify it.
+	 *
+	 * @return The emoji character for each emoji, or 0 if there's no glyph for it.
+	 */
+	char[] glyphs() {
+		return glyphs;
+	}
+}
@@ -0,0 +1,164 @@
+package io.github.radbuilder.emojichat.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with log-linear buckets, like a tiny HdrHistogram: every power of two is split into
+ * {@value #SUB_BUCKETS} buckets, so any recorded value is off by at most 1/{@value #SUB_BUCKETS} (12.5%).
+ * <p>
+ * Recording is one atomic increment plus two cheap updates, so it can be called from the chat threads and the main
+ * thread at the same time without locking.
+ *
+ * @author RadBuilder
+ * @version 1.8.1
+ * @since 1.8.1
+ */
+public class LatencyHistogram implements LatencyHistogramMBean {
+	/**
+	 * The number of buckets every power of two is split into. Must be a power of two.
+	 */
+	private static final int SUB_BUCKETS = 8;
+	/**
+	 * log2 of {@link #SUB_BUCKETS}.
+	 */
+	private static final int SUB_BUCKET_BITS = 3;
+	/**
+	 * Values below this get a bucket each.
+	 */
+	private static final int LINEAR_LIMIT = SUB_BUCKETS * 2;
+	
+	/**
+	 * The number of values recorded in every bucket.
+	 */
+	private final AtomicLongArray buckets;
+	/**
+	 * The sum of all recorded values, in nanoseconds.
+	 */
+	private final LongAdder total;
+	/**
+	 * The highest recorded value, in nanoseconds.
+	 */
+	private final AtomicLong max;
+	
+	/**
+	 * Creates an empty latency histogram.
+	 */
+	public LatencyHistogram() {
+		buckets = new AtomicLongArray(bucketIndex(Long.MAX_VALUE) + 1);
+		total = new LongAdder();
+		max = new AtomicLong();
+	}
+	
+	/**
+	 * Records a latency.
+	 *
+	 * @param nanos The latency, in nanoseconds.
+	 */
+	public void record(long nanos) {
+		if (nanos < 0) { // nanoTime isn't guaranteed to be monotonic on every platform
+			nanos = 0;
+		}
+		buckets.incrementAndGet(bucketIndex(nanos));
+		total.add(nanos);
+		long currentMax = max.get();
+		while (nanos > currentMax && !max.compareAndSet(currentMax, nanos)) {
+			currentMax = max.get();
+		}
+	}
+	
+	/**
+	 * Gets the bucket the specified value is counted in.
+	 *
+	 * @param value The value, zero or more.
+	 * @return The bucket index.
+	 */
+	private static int bucketIndex(long value) {
+		if (value < LINEAR_LIMIT) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value); // At least SUB_BUCKET_BITS + 1
+		int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return LINEAR_LIMIT + (exponent - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + subBucket;
+	}
+	
+	/**
+	 * Gets the highest value counted in the specified bucket.
+	 *
+	 * @param index The bucket index.
+	 * @return The bucket's highest value.
+	 */
+	private static long bucketLimit(int index) {
+		if (index < LINEAR_LIMIT) {
+			return index;
+		}
+		int exponent = (index - LINEAR_LIMIT) / SUB_BUCKETS + SUB_BUCKET_BITS + 1;
+		long subBucket = (index - LINEAR_LIMIT) % SUB_BUCKETS;
+		return ((SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+	}
+	
+	/**
+	 * Gets the latency the specified fraction of recorded latencies are at or below. The buckets are read without
+	 * stopping writers, so the result can be slightly off while latencies are being recorded.
+	 *
+	 * @param quantile The fraction, i.e. 0.99.
+	 * @return The latency, in nanoseconds, or 0 if nothing was recorded.
+	 */
+	public long getQuantileNanos(double quantile) {
+		long count = 0;
+		long[] counts = new long[buckets.length()];
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = buckets.get(i);
+			count += counts[i];
+		}
+		if (count == 0) {
+			return 0;
+		}
+		
+		long rank = Math.max(1, (long) Math.ceil(quantile * count));
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return Math.min(bucketLimit(i), max.get());
+			}
+		}
+		return max.get();
+	}
+	
+	@Override
+	public long getCount() {
+		long count = 0;
+		for (int i = 0; i < buckets.length(); i++) {
+			count += buckets.get(i);
+		}
+		return count;
+	}
+	
+	@Override
+	public double getMeanMicros() {
+		long count = getCount();
+		return count == 0 ? 0 : total.sum() / (count * 1000.0);
+	}
+	
+	@Override
+	public double getP50Micros() {
+		return getQuantileNanos(0.5) / 1000.0;
+	}
+	
+	@Override
+	public double getP99Micros() {
+		return getQuantileNanos(0.99) / 1000.0;
+	}
+	
+	@Override
+	public double getP999Micros() {
+		return getQuantileNanos(0.999) / 1000.0;
+	}
+	
+	@Override
+	public double getMaxMicros() {
+		return max.get() / 1000.0;
+	}
+}
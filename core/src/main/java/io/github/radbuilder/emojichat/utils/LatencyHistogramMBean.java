@@ -0,0 +1,52 @@
+package io.github.radbuilder.emojichat.utils;
+
+/**
+ * JMX view of a {@link LatencyHistogram}. All latencies are in microseconds.
+ *
+ * @author RadBuilder
+ * @version 1.8.1
+ * @since 1.8.1
+ */
+public interface LatencyHistogramMBean {
+	/**
+	 * Gets how many latencies were recorded.
+	 *
+	 * @return The number of recorded latencies.
+	 */
+	long getCount();
+	
+	/**
+	 * Gets the mean latency.
+	 *
+	 * @return The mean latency, in microseconds.
+	 */
+	double getMeanMicros();
+	
+	/**
+	 * Gets the median latency.
+	 *
+	 * @return The median latency, in microseconds.
+	 */
+	double getP50Micros();
+	
+	/**
+	 * Gets the 99th percentile latency.
+	 *
+	 * @return The 99th percentile latency, in microseconds.
+	 */
+	double getP99Micros();
+	
+	/**
+	 * Gets the 99.9th percentile latency.
+	 *
+	 * @return The 99.9th percentile latency, in microseconds.
+	 */
+	double getP999Micros();
+	
+	/**
+	 * Gets the highest latency.
+	 *
+	 * @return The highest latency, in microseconds.
+	 */
+	double getMaxMicros();
+}
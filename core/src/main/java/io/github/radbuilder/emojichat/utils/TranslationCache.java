@@ -0,0 +1,243 @@
+package io.github.radbuilder.emojichat.utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of translated messages, for chat lines that come up again and again ("lol :)", "<3", macros).
+ * <p>
+ * Each stripe is a segmented LRU: a message enters the probation segment, and only moves to the protected segment
+ * when it's looked up again. A burst of one-off messages only churns the probation segment, so it doesn't push out
+ * the lines that keep coming back. The cache is split into stripes with their own lock, so async chat threads rarely
+ * wait on each other.
+ *
+ * @param <V> The type of the cached translations.
+ * @author RadBuilder
+ * @version 1.8.1
+ * @since 1.8.1
+ */
+public final class TranslationCache<V> {
+	/**
+	 * The longest message that's cached. Longer messages rarely repeat word for word.
+	 */
+	public static final int MAX_MESSAGE_LENGTH = 128;
+	
+	/**
+	 * The stripes, a power of two.
+	 */
+	private final Stripe<V>[] stripes;
+	
+	/**
+	 * Creates the cache.
+	 *
+	 * @param maxSize The maximum number of cached messages.
+	 */
+	@SuppressWarnings("unchecked")
+	public TranslationCache(int maxSize) {
+		int count = maxSize >= 1024 ? 16 : maxSize >= 64 ? 4 : 1;
+		stripes = (Stripe<V>[]) new Stripe<?>[count];
+		for (int i = 0; i < count; i++) {
+			stripes[i] = new Stripe<>((maxSize + count - 1) / count);
+		}
+	}
+	
+	/**
+	 * Gets the cached translation of the specified message.
+	 *
+	 * @param message The message.
+	 * @param variant The translation variant: the mode and if shortcuts are translated.
+	 * @return The translation, or null if it isn't cached.
+	 */
+	public V get(String message, int variant) {
+		Key key = new Key(message, variant);
+		return stripe(key).get(key);
+	}
+	
+	/**
+	 * Caches the translation of the specified message.
+	 *
+	 * @param message The message.
+	 * @param variant The translation variant: the mode and if shortcuts are translated.
+	 * @param translated The translation.
+	 */
+	public void put(String message, int variant, V translated) {
+		Key key = new Key(message, variant);
+		stripe(key).put(key, translated);
+	}
+	
+	/**
+	 * Gets the number of cached messages.
+	 *
+	 * @return The number of cached messages.
+	 */
+	public int size() {
+		int size = 0;
+		for (Stripe<V> stripe : stripes) {
+			size += stripe.size();
+		}
+		return size;
+	}
+	
+	/**
+	 * Gets the stripe the specified key belongs to.
+	 *
+	 * @param key The key.
+	 * @return The stripe.
+	 */
+	private Stripe<V> stripe(Key key) {
+		int hash = key.hash;
+		return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+	}
+	
+	/**
+	 * A cache key: a message and the translation variant.
+	 */
+	private static final class Key {
+		/**
+		 * The message.
+		 */
+		private final String message;
+		/**
+		 * The translation variant.
+		 */
+		private final int variant;
+		/**
+		 * The hash code.
+		 */
+		private final int hash;
+		
+		/**
+		 * Creates a cache key.
+		 *
+		 * @param message The message.
+		 * @param variant The translation variant.
+		 */
+		private Key(String message, int variant) {
+			this.message = message;
+			this.variant = variant;
+			hash = message.hashCode() * 31 + variant;
+		}
+		
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key key = (Key) o;
+			return hash == key.hash && variant == key.variant && message.equals(key.message);
+		}
+		
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+	
+	/**
+	 * One stripe of the cache: a segmented LRU.
+	 */
+	private static final class Stripe<V> {
+		/**
+		 * Messages that were looked up once, least recently used first.
+		 */
+		private final LinkedHashMap<Key, V> probation;
+		/**
+		 * Messages that were looked up again, least recently used first.
+		 */
+		private final LinkedHashMap<Key, V> protect;
+		/**
+		 * The maximum size of the {@link #probation} segment.
+		 */
+		private final int probationSize;
+		/**
+		 * The maximum size of the {@link #protect protected} segment.
+		 */
+		private final int protectedSize;
+		
+		/**
+		 * Creates a stripe.
+		 *
+		 * @param maxSize The maximum number of messages in the stripe.
+		 */
+		private Stripe(int maxSize) {
+			protectedSize = maxSize * 4 / 5;
+			probationSize = Math.max(1, maxSize - protectedSize);
+			probation = new LinkedHashMap<>(16, 0.75F, true);
+			protect = new LinkedHashMap<>(16, 0.75F, true);
+		}
+		
+		/**
+		 * Gets a cached message, promoting it to the protected segment if it was on probation.
+		 *
+		 * @param key The key.
+		 * @return The translation, or null if it isn't cached.
+		 */
+		private synchronized V get(Key key) {
+			V translated = protect.get(key);
+			if (translated != null) {
+				return translated;
+			}
+			translated = probation.remove(key);
+			if (translated != null && protectedSize > 0) { // Seen again, protect it
+				protect.put(key, translated);
+				if (protect.size() > protectedSize) { // Demote the least recently used protected message
+					Map.Entry<Key, V> eldest = removeEldest(protect);
+					putProbation(eldest.getKey(), eldest.getValue());
+				}
+			} else if (translated != null) {
+				probation.put(key, translated);
+			}
+			return translated;
+		}
+		
+		/**
+		 * Caches a message on probation.
+		 *
+		 * @param key The key.
+		 * @param translated The translation.
+		 */
+		private synchronized void put(Key key, V translated) {
+			if (protect.containsKey(key)) {
+				protect.put(key, translated);
+			} else {
+				putProbation(key, translated);
+			}
+		}
+		
+		/**
+		 * Puts a message in the probation segment, evicting its least recently used message if it's full.
+		 *
+		 * @param key The key.
+		 * @param translated The translation.
+		 */
+		private void putProbation(Key key, V translated) {
+			probation.put(key, translated);
+			if (probation.size() > probationSize) {
+				removeEldest(probation);
+			}
+		}
+		
+		/**
+		 * Removes the least recently used entry of the specified segment.
+		 *
+		 * @param segment The segment, not empty.
+		 * @return The removed entry.
+		 */
+		private static <V> Map.Entry<Key, V> removeEldest(LinkedHashMap<Key, V> segment) {
+			Iterator<Map.Entry<Key, V>> iterator = segment.entrySet().iterator();
+			Map.Entry<Key, V> eldest = iterator.next();
+			iterator.remove();
+			return eldest;
+		}
+		
+		/**
+		 * Gets the number of cached messages.
+		 *
+		 * @return The number of cached messages.
+		 */
+		private synchronized int size() {
+			return probation.size() + protect.size();
+		}
+	}
+}
@@ -0,0 +1,23 @@
+package io.github.radbuilder.emojichat.utils;
+
+/**
+ * Where a translated message ends up, which decides how its emojis are colored.
+ *
+ * @author RadBuilder
+ * @version 1.8.1
+ * @since 1.8.1
+ */
+public enum TranslationMode {
+	/**
+	 * Chat messages. Emojis are colored white if emoji coloring should be fixed.
+	 */
+	CHAT,
+	/**
+	 * Sign lines. Emojis are always colored white, with the sign's black text restored after them.
+	 */
+	SIGN,
+	/**
+	 * Commands. Emojis are inserted as-is.
+	 */
+	COMMAND
+}
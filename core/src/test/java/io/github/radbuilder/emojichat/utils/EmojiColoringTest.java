@@ -0,0 +1,68 @@
+package io.github.radbuilder.emojichat.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static io.github.radbuilder.emojichat.utils.TestEmojis.GRINNING;
+import static io.github.radbuilder.emojichat.utils.TestEmojis.SMILE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests for {@link EmojiColoring}, through the emoji matcher that writes the colored output.
+ *
+ * @author RadBuilder
+ * @version 1.8.1
+ * @since 1.8.1
+ */
+class EmojiColoringTest {
+	/**
+	 * The matcher for the test emojis and shortcuts.
+	 */
+	private final EmojiMatcher matcher = new EmojiMatcher(TestEmojis.index(), TestEmojis.shortcuts());
+	
+	/**
+	 * Replaces the emojis in the specified message, colored as specified.
+	 *
+	 * @param message The message.
+	 * @param coloring How the emojis are colored.
+	 * @return The replaced message.
+	 */
+	private String replace(String message, EmojiColoring coloring) {
+		return matcher.replace(message, matcher.indexOfTrigger(message, true, true), true, coloring, 0, null, null);
+	}
+	
+	@Test
+	void restoresColorAfterEmoji() {
+		assertEquals("§cred §f" + GRINNING + "§c text", replace("§cred :grinning: text", EmojiColoring.CHAT));
+	}
+	
+	@Test
+	void restoresColorAndFormats() {
+		assertEquals("§c§lbold §f" + GRINNING + "§c§l text", replace("§c§lbold :grinning: text", EmojiColoring.CHAT));
+		assertEquals("§lbold §f" + GRINNING + "§l text", replace("§lbold :grinning: text", EmojiColoring.CHAT));
+	}
+	
+	@Test
+	void writesNoTrailingCode() {
+		assertEquals("§cred §f" + GRINNING, replace("§cred :grinning:", EmojiColoring.CHAT));
+		assertEquals("§cred §f" + GRINNING + " ", replace("§cred :grinning: ", EmojiColoring.CHAT));
+	}
+	
+	@Test
+	void sharesWhiteBetweenEmojis() {
+		assertEquals("§c§f" + GRINNING + SMILE, replace("§c:grinning::smile:", EmojiColoring.CHAT));
+		assertEquals("§c§f" + GRINNING + " " + SMILE, replace("§c:grinning: :)", EmojiColoring.CHAT));
+	}
+	
+	@Test
+	void skipsRestoreBeforeNewColor() {
+		assertEquals("§c§f" + GRINNING + "§ablue", replace("§c:grinning:§ablue", EmojiColoring.CHAT));
+		assertEquals("§c§f" + GRINNING + "§rplain", replace("§c:grinning:§rplain", EmojiColoring.CHAT));
+	}
+	
+	@Test
+	void restoresDefaultColorOnlyOnSigns() {
+		assertEquals("hi §f" + GRINNING + " there", replace("hi :grinning: there", EmojiColoring.CHAT));
+		assertEquals("hi §f" + GRINNING + "§0 there", replace("hi :grinning: there", EmojiColoring.SIGN));
+		assertEquals("hi " + GRINNING + " there", replace("hi :grinning: there", EmojiColoring.NONE));
+	}
+}
@@ -0,0 +1,61 @@
+package io.github.radbuilder.emojichat.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link EmojiIndex}.
+ *
+ * @author RadBuilder
+ * @version 1.8.1
+ * @since 1.8.1
+ */
+class EmojiIndexTest {
+	/**
+	 * The test emojis.
+	 */
+	private final EmojiIndex index = TestEmojis.index();
+	
+	/**
+	 * Completes the specified prefix.
+	 *
+	 * @param prefix The typed prefix.
+	 * @param limit The maximum number of names.
+	 * @return The completions.
+	 */
+	private List<String> complete(String prefix, int limit) {
+		List<String> completions = new ArrayList<>();
+		assertEquals(index.complete(prefix, limit, completions), completions.size());
+		return completions;
+	}
+	
+	@Test
+	void completesInAlphabeticalOrder() {
+		assertEquals(Arrays.asList(":smile:", ":smiley:"), complete(":s", 10));
+		assertEquals(Arrays.asList(":+1:", ":broken_heart:", ":dove:"), complete(":", 3));
+	}
+	
+	@Test
+	void completesUpToTheLimit() {
+		assertEquals(Arrays.asList(":smile:"), complete(":smi", 1));
+		assertTrue(complete(":smi", 0).isEmpty());
+	}
+	
+	@Test
+	void completesFullNames() {
+		assertEquals(Arrays.asList(":smile:"), complete(":smile:", 10));
+		assertEquals(Arrays.asList(":smile:", ":smiley:"), complete(":smile", 10));
+	}
+	
+	@Test
+	void completesNothingForUnknownPrefixes() {
+		assertTrue(complete(":zzz", 10).isEmpty());
+		assertTrue(complete("smile", 10).isEmpty());
+	}
+}
@@ -0,0 +1,124 @@
+package io.github.radbuilder.emojichat.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static io.github.radbuilder.emojichat.utils.TestEmojis.BROKEN_HEART;
+import static io.github.radbuilder.emojichat.utils.TestEmojis.GIRL;
+import static io.github.radbuilder.emojichat.utils.TestEmojis.GRINNING;
+import static io.github.radbuilder.emojichat.utils.TestEmojis.HEART;
+import static io.github.radbuilder.emojichat.utils.TestEmojis.LAPTOP;
+import static io.github.radbuilder.emojichat.utils.TestEmojis.MAN;
+import static io.github.radbuilder.emojichat.utils.TestEmojis.SMILE;
+import static io.github.radbuilder.emojichat.utils.TestEmojis.THUMBS_UP;
+import static io.github.radbuilder.emojichat.utils.TestEmojis.WOMAN;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTimeout;
+
+/**
+ * Tests for {@link EmojiMatcher}.
+ *
+ * @author RadBuilder
+ * @version 1.8.1
+ * @since 1.8.1
+ */
+class EmojiMatcherTest {
+	/**
+	 * The matcher for the test emojis and shortcuts.
+	 */
+	private final EmojiMatcher matcher = new EmojiMatcher(TestEmojis.index(), TestEmojis.shortcuts());
+	
+	/**
+	 * Replaces the emojis in the specified message without coloring them, like commands do.
+	 *
+	 * @param message The message.
+	 * @param shortcuts If shortcuts should be replaced too.
+	 * @return The replaced message.
+	 */
+	private String replace(String message, boolean shortcuts) {
+		int from = matcher.indexOfTrigger(message, true, shortcuts);
+		return from < 0 ? message : matcher.replace(message, from, shortcuts, EmojiColoring.NONE, 0, null, null);
+	}
+	
+	@Test
+	void replacesNamesAndShortcuts() {
+		assertEquals("hi " + GRINNING + " " + SMILE + " " + HEART, replace("hi :grinning: :) <3", true));
+		assertEquals("hi " + GRINNING + " :) <3", replace("hi :grinning: :) <3", false));
+	}
+	
+	@Test
+	void leavesMessagesWithoutEmojisAlone() {
+		String message = "nothing to see: here";
+		assertSame(message, replace(message, true));
+		assertEquals(":unknown: :smile", replace(":unknown: :smile", true));
+	}
+	
+	@Test
+	void longestShortcutWinsAtTheSamePosition() {
+		assertEquals("so sad " + BROKEN_HEART, replace("so sad </3", true));
+	}
+	
+	@Test
+	void shortcutWinsOverlapWithName() {
+		// :smile: and :) overlap on the second colon, and shortcuts have priority over emoji names
+		assertEquals(":smile" + SMILE, replace(":smile:)", true));
+		assertEquals(SMILE + ")", replace(":smile:)", false));
+	}
+	
+	@Test
+	void replacesUnicodeWithVariationSelectors() {
+		assertEquals("I " + HEART + " you", replace("I ❤️ you", true));
+		assertEquals("I " + HEART + " you", replace("I ❤︎ you", true));
+		assertEquals("I " + HEART + " you", replace("I ❤ you", true));
+	}
+	
+	@Test
+	void replacesUnicodeWithSkinTones() {
+		assertEquals("nice " + THUMBS_UP, replace("nice 👍🏽", true));
+		assertEquals(THUMBS_UP + "" + THUMBS_UP, replace("👍🏻👍🏿", true));
+		assertEquals(GRINNING + "!", replace("😀!", true));
+	}
+	
+	@Test
+	void takesFamiliesApart() {
+		assertEquals("" + MAN + WOMAN + GIRL, replace("👨‍👩‍👧", true));
+		assertEquals("hi " + MAN + WOMAN + GIRL + "!", replace("hi 👨🏻‍👩🏽‍👧!", true));
+	}
+	
+	@Test
+	void takesProfessionsApart() {
+		assertEquals("" + WOMAN + LAPTOP, replace("👩‍💻", true));
+		assertEquals("" + WOMAN + LAPTOP, replace("👩🏾‍💻", true));
+		assertEquals(MAN + " ok", replace("👨‍⚕️ ok", true)); // No emoji for the staff, it's dropped with the joiner
+	}
+	
+	@Test
+	void dropsTrailingJoiner() {
+		assertEquals(String.valueOf(GRINNING), replace("😀\u200D", true));
+		assertEquals(GRINNING + " hi", replace("😀\u200D hi", true));
+	}
+	
+	@Test
+	void keepsTextAfterJoiner() {
+		assertEquals(GRINNING + "hi", replace("😀\u200Dhi", true));
+		assertEquals(GRINNING + "中文", replace("😀\u200D中文", true));
+		assertEquals(GRINNING + "한", replace("😀\u200D한", true));
+		assertEquals("" + GRINNING + GIRL, replace("😀\u200D" + GIRL, true)); // An emoji character that's already translated
+	}
+	
+	@Test
+	void resolvesLongOverlapChainsQuickly() {
+		// Every :+1: overlaps the next one, so the whole message is one cluster of overlapping matches
+		StringBuilder message = new StringBuilder();
+		StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 50000; i++) {
+			message.append(":+1");
+			expected.append(i % 2 == 0 ? String.valueOf(THUMBS_UP) : "+1");
+		}
+		message.append(':');
+		expected.append(':');
+		assertTimeout(Duration.ofSeconds(5), () -> assertEquals(expected.toString(), replace(message.toString(), true)));
+	}
+}
@@ -0,0 +1,96 @@
+package io.github.radbuilder.emojichat.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+
+import static io.github.radbuilder.emojichat.utils.TestEmojis.GRINNING;
+import static io.github.radbuilder.emojichat.utils.TestEmojis.HEART;
+import static io.github.radbuilder.emojichat.utils.TestEmojis.SMILE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link EmojiTable}.
+ *
+ * @author RadBuilder
+ * @version 1.8.1
+ * @since 1.8.1
+ */
+class EmojiTableTest {
+	/**
+	 * The table for the test emojis and shortcuts.
+	 */
+	private final EmojiTable table = new EmojiTable(TestEmojis.index(), TestEmojis.shortcuts(), false);
+	
+	@Test
+	void updateKeepsTableIfNothingChanged() {
+		assertSame(table, table.update(TestEmojis.shortcuts(), false, EmojiTable.DEFAULT_MAX_LENGTH));
+	}
+	
+	@Test
+	void updateKeepsShortcutsIfOnlySettingsChanged() {
+		EmojiTable updated = table.update(TestEmojis.shortcuts(), true, 100);
+		assertNotSame(table, updated);
+		assertTrue(updated.fixColoring());
+		assertEquals(100, updated.getMaxLength());
+		assertSame(table.getShortcuts(), updated.getShortcuts());
+		assertEquals("§f" + SMILE, updated.translate(":)", TranslationMode.CHAT, true));
+	}
+	
+	@Test
+	void updateCompilesChangedShortcuts() {
+		LinkedHashMap<String, String> shortcuts = TestEmojis.shortcuts();
+		shortcuts.remove(":)");
+		shortcuts.put("xD", ":grinning:");
+		EmojiTable updated = table.update(shortcuts, false, EmojiTable.DEFAULT_MAX_LENGTH);
+		assertNotSame(table, updated);
+		assertEquals(":) " + GRINNING + " " + HEART, updated.translate(":) xD <3", TranslationMode.COMMAND, true));
+		assertEquals(SMILE + " xD " + HEART, table.translate(":) xD <3", TranslationMode.COMMAND, true));
+	}
+	
+	@Test
+	void updateNoticesReorderedShortcuts() {
+		LinkedHashMap<String, String> shortcuts = new LinkedHashMap<>();
+		shortcuts.put("<3", ":heart:");
+		shortcuts.put("</3", ":broken_heart:");
+		shortcuts.put(":)", ":smile:");
+		assertNotSame(table, table.update(shortcuts, false, EmojiTable.DEFAULT_MAX_LENGTH));
+	}
+	
+	@Test
+	void updateKeepsCacheSize() {
+		EmojiTable cached = table.withCacheSize(16);
+		EmojiTable updated = cached.update(TestEmojis.shortcuts(), true, 0);
+		assertEquals(16, updated.getCacheSize());
+		assertNotSame(cached, updated);
+	}
+	
+	@Test
+	void cacheHitsCountReplacements() {
+		EmojiTable cached = table.withCacheSize(16);
+		EmojiChatMetrics metrics = new EmojiChatMetrics();
+		String message = "hi :grinning: :)";
+		String translated = cached.translate(message, TranslationMode.COMMAND, true, metrics);
+		assertSame(translated, cached.translate(message, TranslationMode.COMMAND, true, metrics));
+		assertEquals(1, metrics.getCacheMisses());
+		assertEquals(1, metrics.getCacheHits());
+		assertEquals(2, metrics.getEmojisReplaced());
+		assertEquals(2, metrics.getShortcutsReplaced());
+		assertEquals(2 * (3 - ":grinning:".length() + 3 - ":)".length()), metrics.getBytesAdded()); // Emojis are 3 UTF-8 bytes
+		assertEquals(2, metrics.getMessagesScanned());
+	}
+	
+	@Test
+	void cacheHitsCountDegradedMessages() {
+		EmojiTable cached = table.update(TestEmojis.shortcuts(), true, 8).withCacheSize(16);
+		EmojiChatMetrics metrics = new EmojiChatMetrics();
+		String message = "§ca :) b"; // Fits uncolored, but not with the colors put back
+		assertEquals("§ca " + SMILE + " b", cached.translate(message, TranslationMode.CHAT, true, metrics));
+		cached.translate(message, TranslationMode.CHAT, true, metrics);
+		assertEquals(2, metrics.getMessagesDegraded());
+		assertEquals(2, metrics.getShortcutsReplaced());
+	}
+}
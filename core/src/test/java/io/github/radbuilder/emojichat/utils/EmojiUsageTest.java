@@ -0,0 +1,95 @@
+package io.github.radbuilder.emojichat.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Tests for {@link EmojiUsage}.
+ *
+ * @author RadBuilder
+ * @version 1.8.1
+ * @since 1.8.1
+ */
+class EmojiUsageTest {
+	/**
+	 * The logger the usage counters report problems to.
+	 */
+	private static final Logger LOGGER = Logger.getLogger(EmojiUsageTest.class.getName());
+	
+	/**
+	 * The folder the snapshot is written to.
+	 */
+	@TempDir
+	Path folder;
+	
+	/**
+	 * Translates the specified message with usage counted in the specified counters.
+	 *
+	 * @param usage The usage counters.
+	 * @param message The message.
+	 */
+	private static void translate(EmojiUsage usage, String message) {
+		new EmojiTable(TestEmojis.index(), TestEmojis.shortcuts(), false, 0, new LongAdder(), usage).translate(message, TranslationMode.CHAT, true);
+	}
+	
+	@Test
+	void flushedCountsAreLoadedAgain() {
+		Path file = folder.resolve("usage.txt");
+		EmojiUsage usage = new EmojiUsage(file, LOGGER);
+		usage.load();
+		translate(usage, ":grinning: :) :grinning:");
+		usage.flush();
+		
+		EmojiUsage reloaded = new EmojiUsage(file, LOGGER);
+		reloaded.load();
+		assertEquals(2, reloaded.getEmojiCount(":grinning:"));
+		assertEquals(0, reloaded.getEmojiCount(":smile:")); // Counted as its shortcut
+		assertEquals(Collections.singletonList(new AbstractMap.SimpleImmutableEntry<>(":)", 1L)), reloaded.getTopShortcuts(10));
+		
+		translate(reloaded, ":heart: :grinning:");
+		reloaded.flush();
+		EmojiUsage again = new EmojiUsage(file, LOGGER);
+		again.load();
+		assertEquals(Arrays.asList(new AbstractMap.SimpleImmutableEntry<>(":grinning:", 3L), new AbstractMap.SimpleImmutableEntry<>(":heart:", 1L)), again.getTopEmojis(10));
+	}
+	
+	@Test
+	void keepsCountsFromBeforeLoad() {
+		Path file = folder.resolve("usage.txt");
+		EmojiUsage usage = new EmojiUsage(file, LOGGER);
+		usage.load();
+		translate(usage, ":grinning:");
+		usage.flush();
+		
+		EmojiUsage restarted = new EmojiUsage(file, LOGGER);
+		translate(restarted, ":grinning:");
+		restarted.flush(); // Not loaded yet, so it must not overwrite the snapshot
+		restarted.load();
+		assertEquals(2, restarted.getEmojiCount(":grinning:"));
+		restarted.flush();
+		
+		EmojiUsage reloaded = new EmojiUsage(file, LOGGER);
+		reloaded.load();
+		assertEquals(2, reloaded.getEmojiCount(":grinning:"));
+	}
+	
+	@Test
+	void writesNothingBeforeLoad() {
+		Path file = folder.resolve("usage.txt");
+		EmojiUsage usage = new EmojiUsage(file, LOGGER);
+		translate(usage, ":grinning:");
+		usage.flush();
+		assertFalse(Files.exists(file));
+	}
+}
@@ -0,0 +1,95 @@
+package io.github.radbuilder.emojichat.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+
+/**
+ * A small emoji list and shortcut config shared by the tests, so the expected output doesn't depend on the bundled
+ * list. The emojis are assigned characters from '娀' upwards in list order, like the bundled list.
+ *
+ * @author RadBuilder
+ * @version 1.8.1
+ * @since 1.8.1
+ */
+final class TestEmojis {
+	/**
+	 * The emoji list, in list.txt format.
+	 */
+	private static final String LIST = "# Test emojis\n:grinning:\n:smile:\n:heart:\n:broken_heart:\n:dove:\n:+1:\n:smiley:\n:girl:\n:man:\n:woman:\n:laptop:\n";
+	/**
+	 * The Unicode emoji list, in unicode.txt format.
+	 */
+	private static final String UNICODE = "# Test Unicode emojis\n:grinning: 1F600\n:heart: 2764\n:+1: 1F44D\n:girl: 1F467\n:man: 1F468\n:woman: 1F469\n:laptop: 1F4BB\n";
+	
+	/**
+	 * The :grinning: emoji character.
+	 */
+	static final char GRINNING = '娀';
+	/**
+	 * The :smile: emoji character.
+	 */
+	static final char SMILE = '威';
+	/**
+	 * The :heart: emoji character.
+	 */
+	static final char HEART = '娂';
+	/**
+	 * The :broken_heart: emoji character.
+	 */
+	static final char BROKEN_HEART = '娃';
+	/**
+	 * The :+1: emoji character.
+	 */
+	static final char THUMBS_UP = '娅';
+	/**
+	 * The :girl: emoji character.
+	 */
+	static final char GIRL = '娇';
+	/**
+	 * The :man: emoji character.
+	 */
+	static final char MAN = '娈';
+	/**
+	 * The :woman: emoji character.
+	 */
+	static final char WOMAN = '娉';
+	/**
+	 * The :laptop: emoji character.
+	 */
+	static final char LAPTOP = '娊';
+	
+	/**
+	 * Not instantiable.
+	 */
+	private TestEmojis() {
+	}
+	
+	/**
+	 * Parses the test emoji list.
+	 *
+	 * @return The emoji index.
+	 */
+	static EmojiIndex index() {
+		try {
+			return EmojiIndex.parseList(new ByteArrayInputStream(LIST.getBytes(StandardCharsets.UTF_8)), new ByteArrayInputStream(UNICODE.getBytes(StandardCharsets.UTF_8)));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	/**
+	 * Gets the test shortcuts, in config order.
+	 *
+	 * @return The shortcuts, mapped to the emoji name they stand for.
+	 */
+	static LinkedHashMap<String, String> shortcuts() {
+		LinkedHashMap<String, String> shortcuts = new LinkedHashMap<>();
+		shortcuts.put(":)", ":smile:");
+		shortcuts.put("</3", ":broken_heart:");
+		shortcuts.put("<3", ":heart:");
+		return shortcuts;
+	}
+}
@@ -0,0 +1,65 @@
+package io.github.radbuilder.emojichat.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Tests for {@link TranslationCache}. A cache of 10 messages has a single stripe, with 8 protected messages and 2 on
+ * probation.
+ *
+ * @author RadBuilder
+ * @version 1.8.1
+ * @since 1.8.1
+ */
+class TranslationCacheTest {
+	@Test
+	void evictsLeastRecentlyUsedOnProbation() {
+		TranslationCache<String> cache = new TranslationCache<>(10);
+		cache.put("a", 0, "A");
+		cache.put("b", 0, "B");
+		cache.put("c", 0, "C");
+		assertEquals(2, cache.size());
+		assertNull(cache.get("a", 0));
+		assertEquals("B", cache.get("b", 0));
+		assertEquals("C", cache.get("c", 0));
+	}
+	
+	@Test
+	void promotesMessagesSeenAgain() {
+		TranslationCache<String> cache = new TranslationCache<>(10);
+		cache.put("lol :)", 0, "lol!");
+		assertEquals("lol!", cache.get("lol :)", 0)); // Promoted to the protected segment
+		for (int i = 0; i < 5; i++) { // Floods the probation segment
+			cache.put("once " + i, 0, "x");
+		}
+		assertEquals("lol!", cache.get("lol :)", 0));
+		assertNull(cache.get("once 0", 0));
+		assertEquals(3, cache.size());
+	}
+	
+	@Test
+	void demotesLeastRecentlyUsedProtected() {
+		TranslationCache<String> cache = new TranslationCache<>(10);
+		for (int i = 0; i < 9; i++) { // One more than the protected segment holds
+			cache.put("m" + i, 0, "t" + i);
+			cache.get("m" + i, 0);
+		}
+		assertEquals(9, cache.size());
+		cache.put("new 1", 0, "x");
+		cache.put("new 2", 0, "x"); // Evicts m0, which was demoted back to probation
+		assertNull(cache.get("m0", 0));
+		assertEquals("t1", cache.get("m1", 0));
+	}
+	
+	@Test
+	void keepsVariantsApart() {
+		TranslationCache<String> cache = new TranslationCache<>(10);
+		cache.put("hi :)", 0, "chat");
+		cache.put("hi :)", 1, "chat with shortcuts");
+		assertEquals("chat", cache.get("hi :)", 0));
+		assertEquals("chat with shortcuts", cache.get("hi :)", 1));
+		assertNull(cache.get("hi :)", 2));
+	}
+}
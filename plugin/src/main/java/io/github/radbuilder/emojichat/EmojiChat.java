@@ -1,26 +1,122 @@
 package io.github.radbuilder.emojichat;
 
+import io.github.radbuilder.emojichat.utils.ConfigWatcher;
 import io.github.radbuilder.emojichat.utils.EmojiChatConfigUpdater;
+import io.github.radbuilder.emojichat.utils.EmojiChatService;
 import io.github.radbuilder.emojichat.utils.EmojiHandler;
+import io.github.radbuilder.emojichat.utils.EmojiTable;
+import io.github.radbuilder.emojichat.utils.ListenerConfig;
+import io.github.radbuilder.emojichat.utils.LoadShedder;
+import io.github.radbuilder.emojichat.utils.PackVariant;
+import io.github.radbuilder.emojichat.utils.ResourcePackDispatcher;
+import io.github.radbuilder.emojichat.utils.ResourcePackServer;
 import org.bukkit.Bukkit;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.IllegalPluginAccessException;
+import org.bukkit.plugin.ServicePriority;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
 
 /**
  * EmojiChat main class.
  *
  * @author RadBuilder
- * @version 1.7
+ * @version 1.8.1
  * @since 1.0
  */
 public class EmojiChat extends JavaPlugin {
+	/**
+	 * The ResourcePack download link used when the built-in ResourcePack server is off.
+	 */
+	private static final String RESOURCE_PACK_URL = "http://jousway.co.uk/shit/UKSRTemoji.zip";
+	/**
+	 * The ResourcePack server file that stands for the bundled pack of the selected {@link PackVariant}.
+	 */
+	private static final String BUNDLED_RESOURCE_PACK = "UKSRTemoji.zip";
+	/**
+	 * How often changed player preferences are written to disk, in ticks.
+	 */
+	private static final long PREFERENCE_SAVE_INTERVAL = 100L;
+	/**
+	 * How often the emoji usage is written to disk, in ticks.
+	 */
+	private static final long USAGE_SAVE_INTERVAL = 1200L;
+	
 	/**
 	 * The emoji handler that stores emoji data.
 	 */
 	private EmojiHandler emojiHandler;
+	/**
+	 * The compiled config values the listener uses.
+	 */
+	private volatile ListenerConfig listenerConfig;
+	/**
+	 * The queue ResourcePack sends go through.
+	 */
+	private ResourcePackDispatcher resourcePackDispatcher;
+	/**
+	 * Steps the main thread handlers down when the server falls behind.
+	 */
+	private LoadShedder loadShedder;
+	/**
+	 * The built-in ResourcePack server, or null if it's off.
+	 */
+	private ResourcePackServer resourcePackServer;
+	/**
+	 * The URL players download the ResourcePack from.
+	 */
+	private String resourcePackUrl = RESOURCE_PACK_URL;
+	/**
+	 * The ResourcePack's SHA-1 hash, or null if it isn't known.
+	 */
+	private byte[] resourcePackHash;
+	/**
+	 * The ResourcePack server settings the current download link was set up from, or null to set it up again on the
+	 * next reload.
+	 */
+	private String resourcePackSettings;
+	/**
+	 * The number of ResourcePack server setups that were started off the main thread.
+	 */
+	private int packServerSetups;
+	/**
+	 * The number of the newest ResourcePack server setup that was put in use, so an older one that took longer to set
+	 * up doesn't replace it.
+	 */
+	private int packServerInUse;
+	/**
+	 * The config loaded by the last reload, or null to use the config Bukkit loaded.
+	 */
+	private volatile FileConfiguration config;
+	/**
+	 * If a reload is running.
+	 */
+	private final AtomicBoolean reloading = new AtomicBoolean();
+	/**
+	 * If config.yml changed while a reload was running, so it has to be reloaded again afterwards.
+	 */
+	private boolean reloadQueued;
+	/**
+	 * Watches config.yml for changes, or null if automatic reloading is off.
+	 */
+	private ConfigWatcher configWatcher;
 	
 	@Override
 	public void onEnable() {
@@ -29,8 +125,24 @@ public class EmojiChat extends JavaPlugin {
 		} else {
 			new EmojiChatConfigUpdater(this); // If there is a config, see if it can be updated
 		}
+		listenerConfig = new ListenerConfig(getConfig());
 		emojiHandler = new EmojiHandler(this);
-				
+		emojiHandler.refreshProfiles(Bukkit.getOnlinePlayers()); // Players who are already online (i.e. after /reload)
+		Bukkit.getServicesManager().register(EmojiChatService.class, emojiHandler, this, ServicePriority.Normal); // The API for other plugins
+		setUpResourcePackServer(getConfig(), emojiHandler.getPackVariant()); // Saving and hashing the pack doesn't hold up the server start
+		resourcePackDispatcher = new ResourcePackDispatcher(this);
+		Bukkit.getScheduler().runTaskTimer(this, resourcePackDispatcher, 1L, 1L);
+		loadShedder = new LoadShedder(getLogger(), emojiHandler.getMetrics());
+		listenerConfig.configure(loadShedder);
+		Bukkit.getScheduler().runTaskTimer(this, loadShedder, 1L, 1L);
+		Bukkit.getScheduler().runTaskAsynchronously(this, () -> { // Read the saved preferences of players who are already online
+			emojiHandler.loadPreferences();
+			Bukkit.getScheduler().runTask(this, () -> emojiHandler.applyPreferences(Bukkit.getOnlinePlayers()));
+			emojiHandler.loadUsage();
+		});
+		Bukkit.getScheduler().runTaskTimerAsynchronously(this, emojiHandler::savePreferences, PREFERENCE_SAVE_INTERVAL, PREFERENCE_SAVE_INTERVAL);
+		Bukkit.getScheduler().runTaskTimerAsynchronously(this, emojiHandler::saveUsage, USAGE_SAVE_INTERVAL, USAGE_SAVE_INTERVAL);
+		
 		// Register the chat listener
 		Bukkit.getPluginManager().registerEvents(new EmojiChatListener(this), this);
 		
@@ -41,12 +153,18 @@ public class EmojiChat extends JavaPlugin {
 		getCommand("emojichat").setTabCompleter(emojiChatTabComplete);
 		getCommand("ec").setExecutor(emojiChatCommand);
 		getCommand("ec").setTabCompleter(emojiChatTabComplete);
+		
+		updateConfigWatcher();
 	}
 	
 	@Override
 	public void onDisable() {
+		stopConfigWatcher();
+		Bukkit.getServicesManager().unregisterAll(this);
+		stopResourcePackServer();
 		emojiHandler.disable();
 	}
+	
 	/**
 	 * Gets the emoji handler.
 	 *
@@ -55,4 +173,464 @@ public class EmojiChat extends JavaPlugin {
 	public EmojiHandler getEmojiHandler() {
 		return emojiHandler;
 	}
+	
+	/**
+	 * Gets the compiled config values the listener uses.
+	 *
+	 * @return The listener config.
+	 */
+	public ListenerConfig getListenerConfig() {
+		return listenerConfig;
+	}
+	
+	/**
+	 * Gets the queue ResourcePack sends go through.
+	 *
+	 * @return The ResourcePack dispatcher.
+	 */
+	public ResourcePackDispatcher getResourcePackDispatcher() {
+		return resourcePackDispatcher;
+	}
+	
+	/**
+	 * Gets the load shedder, which decides how much work the main thread handlers do.
+	 *
+	 * @return The load shedder.
+	 */
+	public LoadShedder getLoadShedder() {
+		return loadShedder;
+	}
+	
+	@Override
+	public FileConfiguration getConfig() {
+		FileConfiguration config = this.config;
+		return config != null ? config : super.getConfig();
+	}
+	
+	@Override
+	public void reloadConfig() {
+		super.reloadConfig();
+		config = null;
+	}
+	
+	/**
+	 * Reloads the EmojiChat config and everything compiled from it. The config is parsed, the emoji table is compiled
+	 * and the ResourcePack is saved and hashed on a background thread, then everything is swapped in at once on the
+	 * main thread, so the server doesn't stall while a large config is reloaded.
+	 *
+	 * @param done Called on the main thread once the new config is in use.
+	 * @param failed Called on the main thread if the reload failed; the error is logged already.
+	 * @return True if the reload started, false if another reload is still running.
+	 */
+	boolean reload(Runnable done, Runnable failed) {
+		if (!reloading.compareAndSet(false, true)) {
+			return false;
+		}
+		
+		File configFile = new File(getDataFolder(), "config.yml");
+		String packSettings = resourcePackSettings; // Only changes on the main thread
+		int packServerSetup = ++packServerSetups;
+		Bukkit.getScheduler().runTaskAsynchronously(this, () -> {
+			PackServerSetup packServer = null;
+			try {
+				FileConfiguration config = loadConfig(configFile);
+				ListenerConfig listenerConfig = new ListenerConfig(config);
+				PackVariant variant = emojiHandler.selectPackVariant(config);
+				EmojiTable table = emojiHandler.compile(config, variant);
+				packServer = getResourcePackSettings(config, variant).equals(packSettings) ? null : prepareResourcePackServer(config, variant, packServerSetup);
+				PackServerSetup preparedPackServer = packServer;
+				Bukkit.getScheduler().runTask(this, () -> applyReload(config, listenerConfig, table, variant, preparedPackServer, done));
+			} catch (Throwable e) { // Even an Error mustn't leave the reload running forever
+				if (packServer != null) {
+					packServer.release();
+				}
+				getLogger().log(Level.SEVERE, "Couldn't reload the EmojiChat config", e);
+				try {
+					Bukkit.getScheduler().runTask(this, () -> failReload(failed));
+				} catch (IllegalPluginAccessException disabled) { // Disabled while the config was being compiled
+					reloading.set(false);
+				}
+			}
+		});
+		return true;
+	}
+	
+	/**
+	 * Loads the specified config file, with the config bundled with EmojiChat as defaults, like
+	 * {@link #reloadConfig()} does.
+	 *
+	 * @param configFile The config file.
+	 * @return The loaded config.
+	 */
+	private FileConfiguration loadConfig(File configFile) {
+		YamlConfiguration config = YamlConfiguration.loadConfiguration(configFile);
+		InputStream defaults = getResource("config.yml");
+		if (defaults != null) {
+			try (Reader reader = new InputStreamReader(defaults, StandardCharsets.UTF_8)) {
+				config.setDefaults(YamlConfiguration.loadConfiguration(reader));
+			} catch (IOException ignored) { // Only closing failed
+			}
+		}
+		return config;
+	}
+	
+	/**
+	 * Puts a reloaded config in use. Runs on the main thread.
+	 *
+	 * @param config The reloaded config.
+	 * @param listenerConfig The listener config compiled from it.
+	 * @param table The emoji table compiled from it.
+	 * @param variant The ResourcePack variant the table was compiled for.
+	 * @param packServer The ResourcePack server set up from it, or null if its settings didn't change.
+	 * @param done Called once the new config is in use.
+	 */
+	private void applyReload(FileConfiguration config, ListenerConfig listenerConfig, EmojiTable table, PackVariant variant, PackServerSetup packServer, Runnable done) {
+		reloading.set(false);
+		if (!isEnabled()) { // Disabled while the config was being compiled
+			if (packServer != null) {
+				packServer.release();
+			}
+			return;
+		}
+		
+		this.config = config;
+		this.listenerConfig = listenerConfig;
+		listenerConfig.configure(loadShedder);
+		emojiHandler.publish(table, variant, config);
+		emojiHandler.refreshProfiles(Bukkit.getOnlinePlayers()); // Pick up permission changes
+		if (packServer != null) { // Players keep downloading from the running server if nothing about it changed
+			startResourcePackServer(packServer);
+		}
+		updateConfigWatcher();
+		done.run();
+		runQueuedReload();
+	}
+	
+	/**
+	 * Gives up on a reload that failed, keeping the current config in use. Runs on the main thread.
+	 *
+	 * @param failed Called to report the failure.
+	 */
+	private void failReload(Runnable failed) {
+		reloading.set(false);
+		if (!isEnabled()) {
+			return;
+		}
+		
+		failed.run();
+		runQueuedReload();
+	}
+	
+	/**
+	 * Reloads the config again if config.yml changed while the last reload was running.
+	 */
+	private void runQueuedReload() {
+		if (reloadQueued) {
+			reloadQueued = false;
+			autoReload();
+		}
+	}
+	
+	/**
+	 * Reloads the config after config.yml changed. Runs on the main thread.
+	 */
+	private void autoReload() {
+		if (!reload(() -> getLogger().info("Reloaded the config because config.yml changed."), () -> getLogger().warning("Kept the current config, fix config.yml and save it again."))) {
+			reloadQueued = true; // The running reload might have read the file before it changed
+		}
+	}
+	
+	/**
+	 * Starts or stops watching config.yml, depending on the config.
+	 */
+	private void updateConfigWatcher() {
+		boolean autoReload = getConfig().getBoolean("auto-reload.enabled");
+		if (autoReload && configWatcher == null) {
+			ConfigWatcher watcher = new ConfigWatcher(new File(getDataFolder(), "config.yml").toPath(), getConfig().getLong("auto-reload.delay", 500L), () -> Bukkit.getScheduler().runTask(this, this::autoReload), getLogger());
+			try {
+				watcher.start();
+				configWatcher = watcher;
+			} catch (IOException e) {
+				watcher.stop();
+				getLogger().warning("Couldn't watch config.yml for changes: " + e.getMessage());
+			}
+		} else if (!autoReload) {
+			stopConfigWatcher();
+		}
+	}
+	
+	/**
+	 * Stops watching config.yml if it's being watched.
+	 */
+	private void stopConfigWatcher() {
+		if (configWatcher != null) {
+			configWatcher.stop();
+			configWatcher = null;
+		}
+	}
+	
+	/**
+	 * Gets what identifies the current ResourcePack: its hex SHA-1 hash, or its URL if the hash isn't known.
+	 *
+	 * @return The ResourcePack ID.
+	 */
+	public String getResourcePackId() {
+		return resourcePackHash != null ? ResourcePackServer.toHex(resourcePackHash) : resourcePackUrl;
+	}
+	
+	/**
+	 * Sends the specified player the EmojiChat ResourcePack right away, along with its SHA-1 hash if it's known so the
+	 * client only downloads the pack again when it changed. Use the {@link #getResourcePackDispatcher() dispatcher} to
+	 * queue the pack instead.
+	 *
+	 * @param player The player to send the ResourcePack to.
+	 */
+	public void sendResourcePack(Player player) {
+		if (resourcePackHash != null) {
+			player.setResourcePack(resourcePackUrl, resourcePackHash);
+		} else {
+			player.setResourcePack(resourcePackUrl);
+		}
+	}
+	
+	/**
+	 * Gets the ResourcePack server settings of the specified config and variant, which tell if the server has to be set
+	 * up again on a reload. A custom pack file's size and modification time are part of them, so replacing the file is
+	 * picked up too.
+	 *
+	 * @param config The config to get the settings from.
+	 * @param variant The selected ResourcePack variant.
+	 * @return The settings.
+	 */
+	private String getResourcePackSettings(FileConfiguration config, PackVariant variant) {
+		String packFileName = config.getString("resourcepack-server.file", BUNDLED_RESOURCE_PACK);
+		File packFile = new File(getDataFolder(), packFileName);
+		String packState = packFileName.equals(BUNDLED_RESOURCE_PACK) ? "" : packFile.length() + "@" + packFile.lastModified(); // The bundled pack only changes with the variant
+		return config.getBoolean("resourcepack-server.enabled") + "|" + config.getString("resourcepack-server.address", "") + "|" + config.getInt("resourcepack-server.port", 8163) + "|"
+				+ packFileName + "|" + packState + "|" + config.getString("resourcepack-server.public-url", "") + "|" + config.getInt("resourcepack-server.max-downloads", 8) + "|" + variant.getId();
+	}
+	
+	/**
+	 * Sets up the built-in ResourcePack server if it's enabled in the specified config: saves the bundled pack, then
+	 * maps and hashes the pack file. Doesn't listen yet, so it's safe to call off the main thread.
+	 *
+	 * @param config The config to set the server up from.
+	 * @param variant The selected ResourcePack variant.
+	 * @param number The number of the setup, from {@link #packServerSetups}.
+	 * @return The server setup, without a server if it's off or can't be set up.
+	 */
+	private PackServerSetup prepareResourcePackServer(FileConfiguration config, PackVariant variant, int number) {
+		String settings = getResourcePackSettings(config, variant);
+		if (!config.getBoolean("resourcepack-server.enabled")) {
+			if (variant.getId() != PackVariant.DEFAULT) { // The default link only has the default pack
+				getLogger().warning("ResourcePack variant " + variant.getId() + " is only sent by the built-in ResourcePack server, so players get variant " + PackVariant.DEFAULT + ".");
+			}
+			return new PackServerSetup(number, settings, null, null);
+		}
+		
+		String address = config.getString("resourcepack-server.address", "");
+		if (address.isEmpty()) { // Use the Minecraft server's address, which is empty if it listens on every address
+			address = Bukkit.getIp();
+		}
+		int port = config.getInt("resourcepack-server.port", 8163);
+		String packFileName = config.getString("resourcepack-server.file", BUNDLED_RESOURCE_PACK);
+		boolean bundled = packFileName.equals(BUNDLED_RESOURCE_PACK);
+		if (bundled) { // Each variant gets its own file, so clients never mix up their cached packs
+			packFileName = variant.getPackName();
+		}
+		File packFile = new File(getDataFolder(), packFileName);
+		String publicUrl = config.getString("resourcepack-server.public-url", "");
+		boolean everyAddress = address.isEmpty() || address.equals("0.0.0.0") || address.equals("::");
+		if (publicUrl.isEmpty()) {
+			if (everyAddress) {
+				getLogger().warning("The ResourcePack server listens on every address, so set 'resourcepack-server.public-url' to the URL players should download the ResourcePack from.");
+				return new PackServerSetup(number, settings, null, null);
+			}
+			publicUrl = "http://" + (address.indexOf(':') >= 0 ? "[" + address + "]" : address) + ":" + port + "/" + packFile.getName();
+		} else if (everyAddress) { // Reachable on every network interface, not just the one behind the public URL
+			getLogger().warning("The ResourcePack server listens on port " + port + " of every network interface. Set 'resourcepack-server.address' to only listen on one.");
+		}
+		byte[] packHash = null;
+		if (bundled) { // Serve the bundled pack, whose hash was computed at build time
+			try {
+				packHash = saveBundledResourcePack(variant, packFile);
+			} catch (IOException e) {
+				getLogger().warning("Couldn't save the bundled ResourcePack to " + packFile + ": " + e.getMessage());
+			}
+		}
+		if (!packFile.isFile()) {
+			getLogger().warning("The ResourcePack server is enabled, but " + packFile + " doesn't exist.");
+			return new PackServerSetup(number, settings, null, null);
+		}
+		
+		InetSocketAddress bindAddress = address.isEmpty() ? new InetSocketAddress(port) : new InetSocketAddress(address, port);
+		ResourcePackServer server = new ResourcePackServer(bindAddress, packFile, packHash, config.getInt("resourcepack-server.max-downloads", 8), getLogger());
+		try {
+			server.prepare();
+		} catch (IOException e) {
+			getLogger().severe("Couldn't read the ResourcePack " + packFile + ": " + e.getMessage());
+			return new PackServerSetup(number, settings, null, null);
+		}
+		return new PackServerSetup(number, settings, server, publicUrl);
+	}
+	
+	/**
+	 * Sets up the built-in ResourcePack server off the main thread, then starts it on the main thread. Players get the
+	 * default download link until then.
+	 *
+	 * @param config The config to set the server up from.
+	 * @param variant The selected ResourcePack variant.
+	 */
+	private void setUpResourcePackServer(FileConfiguration config, PackVariant variant) {
+		int number = ++packServerSetups;
+		Bukkit.getScheduler().runTaskAsynchronously(this, () -> {
+			PackServerSetup setup = prepareResourcePackServer(config, variant, number);
+			try {
+				Bukkit.getScheduler().runTask(this, () -> startResourcePackServer(setup));
+			} catch (IllegalPluginAccessException e) { // Disabled while the server was being set up
+				setup.release();
+			}
+		});
+	}
+	
+	/**
+	 * Replaces the running ResourcePack server (if any) with the specified one, unless a newer setup is already in
+	 * use. Players get the default download link if the new server is off or can't be started.
+	 *
+	 * @param setup The server setup, from {@link #prepareResourcePackServer(FileConfiguration, PackVariant, int)}.
+	 */
+	private void startResourcePackServer(PackServerSetup setup) {
+		if (setup.number < packServerInUse) { // A newer setup finished first
+			setup.release();
+			return;
+		}
+		packServerInUse = setup.number;
+		stopResourcePackServer();
+		resourcePackSettings = setup.settings;
+		ResourcePackServer server = setup.server;
+		if (server == null) {
+			return;
+		}
+		
+		try {
+			server.start();
+		} catch (IOException e) {
+			server.stop();
+			resourcePackSettings = null; // Try again on the next reload, i.e. once the port is free
+			getLogger().severe("Couldn't start the ResourcePack server on " + server.getAddress() + ": " + e.getMessage());
+			return;
+		}
+		
+		resourcePackServer = server;
+		resourcePackUrl = setup.publicUrl;
+		resourcePackHash = server.getSha1();
+		getLogger().info("Serving the ResourcePack at " + setup.publicUrl + " (SHA-1 " + ResourcePackServer.toHex(resourcePackHash) + ").");
+	}
+	
+	/**
+	 * Saves the specified variant's ResourcePack bundled with EmojiChat to the specified file, unless the file already
+	 * holds exactly that pack. The file is replaced in one go, so a server still mapping the old file never sees it
+	 * half-written.
+	 *
+	 * @param variant The ResourcePack variant to save.
+	 * @param packFile The file to save the ResourcePack to.
+	 * @return The bundled pack's SHA-1 hash, or null if EmojiChat wasn't built with one (i.e. running from an IDE).
+	 * @throws IOException If the bundled pack can't be read or saved.
+	 */
+	private byte[] saveBundledResourcePack(PackVariant variant, File packFile) throws IOException {
+		byte[] hash = variant.getSha1();
+		byte[] pack = hash != null ? readResource(variant.getPackName()) : null;
+		if (pack == null || hash == null) {
+			return null;
+		}
+		
+		if (!packFile.isFile() || !Arrays.equals(Files.readAllBytes(packFile.toPath()), pack)) {
+			File tempFile = new File(packFile.getPath() + ".tmp");
+			Files.createDirectories(packFile.getAbsoluteFile().getParentFile().toPath());
+			Files.write(tempFile.toPath(), pack);
+			Files.move(tempFile.toPath(), packFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		return hash;
+	}
+	
+	/**
+	 * Reads a resource bundled with EmojiChat.
+	 *
+	 * @param name The resource name.
+	 * @return The resource contents, or null if it isn't bundled.
+	 * @throws IOException If the resource can't be read.
+	 */
+	private byte[] readResource(String name) throws IOException {
+		InputStream resource = getResource(name);
+		if (resource == null) {
+			return null;
+		}
+		try (InputStream input = resource) {
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = input.read(buffer)) >= 0) {
+				output.write(buffer, 0, read);
+			}
+			return output.toByteArray();
+		}
+	}
+	
+	/**
+	 * Stops the built-in ResourcePack server if it's running, and goes back to the default download link.
+	 */
+	private void stopResourcePackServer() {
+		if (resourcePackServer != null) {
+			resourcePackServer.stop();
+			resourcePackServer = null;
+		}
+		resourcePackUrl = RESOURCE_PACK_URL;
+		resourcePackHash = null;
+	}
+	
+	/**
+	 * A ResourcePack server set up off the main thread, ready to be started.
+	 */
+	private static final class PackServerSetup {
+		/**
+		 * The number of the setup, counting up, so the newest setup wins.
+		 */
+		private final int number;
+		/**
+		 * The settings it was set up from.
+		 */
+		private final String settings;
+		/**
+		 * The prepared server, or null if the server is off or couldn't be set up.
+		 */
+		private final ResourcePackServer server;
+		/**
+		 * The URL players download the ResourcePack from, or null if there's no server.
+		 */
+		private final String publicUrl;
+		
+		/**
+		 * Creates a server setup.
+		 *
+		 * @param number The number of the setup, counting up.
+		 * @param settings The settings it was set up from.
+		 * @param server The prepared server, or null if the server is off or couldn't be set up.
+		 * @param publicUrl The URL players download the ResourcePack from, or null if there's no server.
+		 */
+		private PackServerSetup(int number, String settings, ResourcePackServer server, String publicUrl) {
+			this.number = number;
+			this.settings = settings;
+			this.server = server;
+			this.publicUrl = publicUrl;
+		}
+		
+		/**
+		 * Closes the prepared server's pack, for a setup that isn't started after all.
+		 */
+		private void release() {
+			if (server != null) {
+				server.stop();
+			}
+		}
+	}
 }
@@ -1,11 +1,20 @@
 package io.github.radbuilder.emojichat;
 
+import io.github.radbuilder.emojichat.utils.EmojiChatMetrics;
+import io.github.radbuilder.emojichat.utils.EmojiIndex;
+import io.github.radbuilder.emojichat.utils.EmojiTable;
+import io.github.radbuilder.emojichat.utils.EmojiUsage;
+import io.github.radbuilder.emojichat.utils.LatencyHistogram;
+import io.github.radbuilder.emojichat.utils.TranslationMode;
 import org.bukkit.ChatColor;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
+import java.util.List;
+import java.util.Map;
+
 /**
  * EmojiChat command class.
  *
@@ -14,6 +23,14 @@ import org.bukkit.entity.Player;
  * @since 1.0
  */
 class EmojiChatCommand implements CommandExecutor {
+	/**
+	 * The number of entries /emojichat top shows by default.
+	 */
+	private static final int DEFAULT_TOP = 10;
+	/**
+	 * The most entries /emojichat top shows.
+	 */
+	private static final int MAX_TOP = 50;
 	/**
 	 * EmojiChat main class instance.
 	 */
@@ -49,6 +66,8 @@ class EmojiChatCommand implements CommandExecutor {
 				sender.sendMessage(ChatColor.GREEN + "/emojichat resourcepack: " + ChatColor.AQUA + "Re-sends the resourcepack.");
 				sender.sendMessage(ChatColor.GREEN + "/emojichat reload: " + ChatColor.AQUA + "Reloads the EmojiChat config.");
 				sender.sendMessage(ChatColor.GREEN + "/emojichat toggle: " + ChatColor.AQUA + "Toggles emoji shortcuts on or off.");
+				sender.sendMessage(ChatColor.GREEN + "/emojichat stats: " + ChatColor.AQUA + "Shows emoji translation stats.");
+				sender.sendMessage(ChatColor.GREEN + "/emojichat top [n]: " + ChatColor.AQUA + "Shows the most used emojis and shortcuts.");
 				return true;
 			case "resourcepack":
 				if (!sender.hasPermission("emojichat.see")) {
@@ -57,8 +76,8 @@ class EmojiChatCommand implements CommandExecutor {
 				}
 				
 				if (sender instanceof Player) {
-					((Player) sender).setResourcePack("http://jousway.co.uk/shit/UKSRTemoji.zip");
-					sender.sendMessage(ChatColor.GREEN + "Sent the EmojiChat ResourcePack.");
+					plugin.getResourcePackDispatcher().queue((Player) sender, 0L, true);
+					sender.sendMessage(ChatColor.GREEN + "Sending the EmojiChat ResourcePack.");
 					sender.sendMessage(ChatColor.AQUA + "If you still can't see emojis, make sure the settings for this server (on the server list) have the resource pack option set to prompt or enabled.");
 				}
 				return true;
@@ -68,9 +87,9 @@ class EmojiChatCommand implements CommandExecutor {
 					return true;
 				}
 				
-				plugin.reloadConfig();
-				plugin.getEmojiHandler().load(plugin);
-				sender.sendMessage(ChatColor.GREEN + "EmojiChat config reloaded.");
+				if (!plugin.reload(() -> sender.sendMessage(ChatColor.GREEN + "EmojiChat config reloaded."), () -> sender.sendMessage(ChatColor.RED + "Couldn't reload the EmojiChat config, see the console for details."))) {
+					sender.sendMessage(ChatColor.RED + "EmojiChat is already reloading its config.");
+				}
 				return true;
 			case "toggle":
 				if (!sender.hasPermission("emojichat.toggle")) {
@@ -85,9 +104,90 @@ class EmojiChatCommand implements CommandExecutor {
 					sender.sendMessage(ChatColor.RED + "Oops, you have to be a player to toggle shortcuts.");
 				}
 				return true;
+			case "stats":
+				if (!sender.hasPermission("emojichat.stats")) {
+					sender.sendMessage(ChatColor.RED + "You need " + ChatColor.GOLD + "emojichat.stats" + ChatColor.RED + " to use this command.");
+					return true;
+				}
+				
+				EmojiChatMetrics metrics = plugin.getEmojiHandler().getMetrics();
+				if (!metrics.isEnabled()) {
+					sender.sendMessage(ChatColor.RED + "Metrics are disabled. Set " + ChatColor.GOLD + "metrics" + ChatColor.RED + " to true in the config to enable them.");
+					return true;
+				}
+				
+				sender.sendMessage(ChatColor.AQUA + "---------- EmojiChat Stats ----------");
+				sender.sendMessage(ChatColor.GREEN + "Messages scanned: " + ChatColor.AQUA + metrics.getMessagesScanned() + " (" + plugin.getEmojiHandler().getFastPathCount() + " without emojis)");
+				sender.sendMessage(ChatColor.GREEN + "Replaced: " + ChatColor.AQUA + metrics.getEmojisReplaced() + " emojis, " + metrics.getShortcutsReplaced() + " shortcuts, " + metrics.getBytesAdded() + " bytes added");
+				sender.sendMessage(ChatColor.GREEN + "Too long: " + ChatColor.AQUA + metrics.getMessagesDegraded() + " messages sent with fewer colors or without emojis");
+				EmojiTable table = plugin.getEmojiHandler().getTable();
+				if (table.getCacheSize() > 0) {
+					long hits = metrics.getCacheHits();
+					long lookups = hits + metrics.getCacheMisses();
+					sender.sendMessage(ChatColor.GREEN + "Cache: " + ChatColor.AQUA + hits + "/" + lookups + " hits"
+							+ String.format(" (%.1f%%), ", lookups > 0 ? hits * 100.0 / lookups : 0.0) + table.getCachedCount() + "/" + table.getCacheSize() + " cached");
+				}
+				if (table.getGlyphs() != null) {
+					sender.sendMessage(ChatColor.GREEN + "Pack variant: " + ChatColor.AQUA + plugin.getEmojiHandler().getPackVariant().getId() + " (" + table.getGlyphs().getGlyphCount() + "/" + table.getEmojiIndex().size() + " emojis)");
+				}
+				sender.sendMessage(ChatColor.GREEN + "Load shedding: " + ChatColor.AQUA + plugin.getLoadShedder().getLevel() + " (" + metrics.getDegradationLevelChanges() + " level changes)");
+				for (TranslationMode mode : TranslationMode.values()) {
+					LatencyHistogram latency = metrics.getLatency(mode);
+					sender.sendMessage(ChatColor.GREEN + mode.name().substring(0, 1) + mode.name().substring(1).toLowerCase() + ": " + ChatColor.AQUA + latency.getCount() + " events, "
+							+ String.format("p50 %.1fµs, p99 %.1fµs, max %.1fµs", latency.getP50Micros(), latency.getP99Micros(), latency.getMaxMicros()));
+				}
+				return true;
+			case "top":
+				if (!sender.hasPermission("emojichat.stats")) {
+					sender.sendMessage(ChatColor.RED + "You need " + ChatColor.GOLD + "emojichat.stats" + ChatColor.RED + " to use this command.");
+					return true;
+				}
+				
+				int limit = DEFAULT_TOP;
+				if (args.length > 1) {
+					try {
+						limit = Math.min(MAX_TOP, Math.max(1, Integer.parseInt(args[1])));
+					} catch (NumberFormatException e) {
+						sender.sendMessage(ChatColor.RED + "'" + args[1] + "' isn't a number. Use " + ChatColor.GOLD + "/emojichat top [n]" + ChatColor.RED + ".");
+						return true;
+					}
+				}
+				
+				EmojiUsage usage = plugin.getEmojiHandler().getUsage();
+				EmojiIndex emojis = plugin.getEmojiHandler().getTable().getEmojiIndex();
+				int unused = 0;
+				for (int i = 0; i < emojis.size(); i++) {
+					if (usage.getEmojiCount(emojis.getName(i)) == 0) {
+						unused++;
+					}
+				}
+				sender.sendMessage(ChatColor.AQUA + "---------- EmojiChat Top " + limit + " ----------");
+				sendTop(sender, "Emojis", usage.getTopEmojis(limit));
+				sendTop(sender, "Shortcuts", usage.getTopShortcuts(limit));
+				sender.sendMessage(ChatColor.GREEN + "Never used: " + ChatColor.AQUA + unused + " of " + emojis.size() + " emojis");
+				return true;
 			default:
 				sender.sendMessage(ChatColor.RED + "Unknown sub-command '" + args[0] + "'. Use " + ChatColor.GOLD + "/emojichat help" + ChatColor.RED + " for help.");
 				return true;
 		}
 	}
+	
+	/**
+	 * Sends the specified usage counts, one per line.
+	 *
+	 * @param sender The sender to send the counts to.
+	 * @param title What was counted.
+	 * @param top The counts, most used first.
+	 */
+	private void sendTop(CommandSender sender, String title, List<Map.Entry<String, Long>> top) {
+		if (top.isEmpty()) {
+			sender.sendMessage(ChatColor.GREEN + title + ": " + ChatColor.AQUA + "none used yet");
+			return;
+		}
+		sender.sendMessage(ChatColor.GREEN + title + ":");
+		int rank = 1;
+		for (Map.Entry<String, Long> entry : top) {
+			sender.sendMessage(ChatColor.GREEN + "  " + rank++ + ". " + ChatColor.AQUA + entry.getKey() + ChatColor.GREEN + " x" + entry.getValue());
+		}
+	}
 }
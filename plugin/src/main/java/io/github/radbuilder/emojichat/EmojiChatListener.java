@@ -1,6 +1,8 @@
 package io.github.radbuilder.emojichat;
 
-import org.bukkit.Bukkit;
+import io.github.radbuilder.emojichat.utils.DegradationLevel;
+import io.github.radbuilder.emojichat.utils.EmojiChatProfile;
+import io.github.radbuilder.emojichat.utils.TranslationMode;
 import org.bukkit.ChatColor;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
@@ -9,8 +11,15 @@ import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.SignChangeEvent;
 import org.bukkit.event.player.AsyncPlayerChatEvent;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerCommandPreprocessEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerResourcePackStatusEvent;
+import org.bukkit.event.server.TabCompleteEvent;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * EmojiChat listener class.
@@ -24,10 +33,6 @@ class EmojiChatListener implements Listener {
 	 * EmojiChat main class instance.
 	 */
 	private final EmojiChat plugin;
-	/**
-	 * If EmojiChat should automatically download the ResourcePack for the player.
-	 */
-	private final boolean autoDownloadResourcePack;
 	
 	/**
 	 * Creates the EmojiChat listener class with the main class instance.
@@ -36,88 +41,137 @@ class EmojiChatListener implements Listener {
 	 */
 	EmojiChatListener(EmojiChat plugin) {
 		this.plugin = plugin;
-		autoDownloadResourcePack = plugin.getConfig().getBoolean("download-resourcepack");
 	}
 	
-	@EventHandler
+	@EventHandler(priority = EventPriority.MONITOR)
+	void onPreLogin(AsyncPlayerPreLoginEvent event) {
+		if (event.getLoginResult() == AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+			plugin.getEmojiHandler().loadPreferences(); // Off the main thread, so the preferences are ready on join
+		}
+	}
+	
+	@EventHandler(priority = EventPriority.LOWEST)
 	void onJoin(PlayerJoinEvent event) {
 		Player player = event.getPlayer();
 		
-		if (!autoDownloadResourcePack) // If auto downloading of the ResourcePack is disabled
+		plugin.getEmojiHandler().loadProfile(player); // Cache the player's shortcut toggle and permissions
+		
+		if (!plugin.getListenerConfig().downloadResourcePack()) // If auto downloading of the ResourcePack is disabled
 			return;
 		
-		// Send the player the resource pack
-		Bukkit.getScheduler().runTaskLater(plugin, () -> {
-			if (player.hasPermission("emojichat.see")) { // If the player can see emojis
-				player.setResourcePack("http://jousway.co.uk/shit/UKSRTemoji.zip");
-			}
-		}, 20L); // Give time for the player to join
+		// Queue the resource pack, the dispatcher skips players who can't see emojis
+		plugin.getResourcePackDispatcher().queue(player, 20L, false); // Give time for the player to join
+	}
+	
+	@EventHandler(priority = EventPriority.MONITOR)
+	void onQuit(PlayerQuitEvent event) {
+		plugin.getResourcePackDispatcher().cancel(event.getPlayer());
+		plugin.getEmojiHandler().unloadProfile(event.getPlayer());
+	}
+	
+	@EventHandler(priority = EventPriority.MONITOR)
+	void onResourcePackStatus(PlayerResourcePackStatusEvent event) {
+		plugin.getResourcePackDispatcher().handleStatus(event.getPlayer(), event.getStatus());
 	}
 	
 	@EventHandler(priority = EventPriority.HIGH)
 	void onChat(AsyncPlayerChatEvent event) {
-		if (!event.getPlayer().hasPermission("emojichat.use") || !event.getPlayer().hasPermission("emojichat.use.chat"))
+		EmojiChatProfile profile = plugin.getEmojiHandler().getProfile(event.getPlayer());
+		if (!profile.can(EmojiChatProfile.USE_CHAT))
 			return; // Don't do anything if they don't have permission
 		
-		String message = event.getMessage();
-		
-		// Checks if the user disabled shortcuts via /emojichat toggle
-		if (!plugin.getEmojiHandler().hasShortcutsOff(event.getPlayer())) {
-			message = plugin.getEmojiHandler().translateShorthand(message);
-		}
-		
-		// Replace shortcuts with emojis
-		message = plugin.getEmojiHandler().toEmojiFromChat(message);
-		
-		event.setMessage(message);
+		// Replace shortcuts and emoji names with emojis, unless the user disabled shortcuts via /emojichat toggle
+		long start = plugin.getEmojiHandler().getMetrics().startTimer();
+		boolean shortcuts = !profile.hasShortcutsOff();
+		event.setMessage(plugin.getEmojiHandler().translate(event.getMessage(), TranslationMode.CHAT, shortcuts));
+		plugin.getEmojiHandler().getMetrics().stopTimer(TranslationMode.CHAT, start);
 	}
 	
 	@EventHandler(priority = EventPriority.HIGH)
 	void onSignChange(SignChangeEvent event) {
-		if (!event.getPlayer().hasPermission("emojichat.use") || !event.getPlayer().hasPermission("emojichat.use.sign"))
-			return; // Don't do anything if they don't have permission
-		
-		if (!plugin.getConfig().getBoolean("emojis-on-signs")) // Feature is disabled
+		if (!plugin.getListenerConfig().emojisOnSigns()) // Feature is disabled
 			return;
 		
+		EmojiChatProfile profile = plugin.getEmojiHandler().getProfile(event.getPlayer());
+		if (!profile.can(EmojiChatProfile.USE_SIGN))
+			return; // Don't do anything if they don't have permission
+		
+		// Checks if the user disabled shortcuts via /emojichat toggle, and how much the server can take right now
+		long start = System.nanoTime();
+		DegradationLevel level = plugin.getLoadShedder().getLevel();
+		boolean shortcuts = !profile.hasShortcutsOff() && level.shortcuts();
+		TranslationMode mode = level.translationMode(TranslationMode.SIGN);
 		for (int i = 0; i < 4; i++) {
-			String line = event.getLine(i);
-			
-			// Checks if the user disabled shortcuts via /emojichat toggle
-			if (!plugin.getEmojiHandler().hasShortcutsOff(event.getPlayer())) {
-				line = plugin.getEmojiHandler().translateShorthand(line);
-			}
-			
-			// Replace shortcuts with emojis
-			line = plugin.getEmojiHandler().toEmojiFromSign(line);
-			
-			event.setLine(i, line);
+			// Replace shortcuts and emoji names with emojis
+			event.setLine(i, plugin.getEmojiHandler().translate(event.getLine(i), mode, shortcuts));
 		}
+		recordLatency(TranslationMode.SIGN, start);
 	}
 	
 	@EventHandler(priority = EventPriority.HIGH)
 	void onCommandPreProcess(PlayerCommandPreprocessEvent event) {
-		if (!event.getPlayer().hasPermission("emojichat.use") || !event.getPlayer().hasPermission("emojichat.use.command"))
+		String command = event.getMessage();
+		
+		// Feature is disabled, or only-command-list is enabled and the command-list doesn't contain the command being ran
+		if (!plugin.getListenerConfig().emojisInCommand(command))
+			return;
+		
+		EmojiChatProfile profile = plugin.getEmojiHandler().getProfile(event.getPlayer());
+		if (!profile.can(EmojiChatProfile.USE_COMMAND))
 			return; // Don't do anything if they don't have permission
 		
-		if (!plugin.getConfig().getBoolean("emojis-in-commands")) // Feature is disabled
+		// Replace shortcuts and emoji names with emojis, unless the user disabled shortcuts via /emojichat toggle or the
+		// server is falling behind
+		long start = System.nanoTime();
+		boolean shortcuts = !profile.hasShortcutsOff() && plugin.getLoadShedder().getLevel().shortcuts();
+		event.setMessage(plugin.getEmojiHandler().translate(command, TranslationMode.COMMAND, shortcuts));
+		recordLatency(TranslationMode.COMMAND, start);
+	}
+	
+	@EventHandler(priority = EventPriority.HIGH)
+	void onTabComplete(TabCompleteEvent event) {
+		int limit = plugin.getListenerConfig().tabCompleteLimit();
+		if (limit == 0 || !(event.getSender() instanceof Player)) // Feature is disabled, or not a player
+			return;
+		if (!plugin.getLoadShedder().getLevel().tabComplete()) // The server is falling behind
 			return;
 		
-		String command = event.getMessage();
+		String buffer = event.getBuffer();
+		if (!buffer.startsWith("/")) // 1.13 clients only ask the server to complete commands, never plain chat
+			return;
+		int wordStart = buffer.lastIndexOf(' ') + 1;
+		if (wordStart >= buffer.length() || buffer.charAt(wordStart) != ':') // Not typing an emoji name
+			return;
+		
+		EmojiChatProfile profile = plugin.getEmojiHandler().getProfile((Player) event.getSender());
+		if (!plugin.getListenerConfig().emojisInCommand(buffer) || !profile.can(EmojiChatProfile.USE_COMMAND))
+			return; // Emojis wouldn't be translated here anyway
 		
-		// only-command-list is enabled and the command-list doesn't contain the command being ran
-		if (plugin.getConfig().getBoolean("only-command-list") && !plugin.getConfig().getStringList("command-list").contains(command.split(" ")[0].toLowerCase())) {
+		long start = System.nanoTime();
+		List<String> emojiNames = new ArrayList<>(limit);
+		plugin.getEmojiHandler().getTable().getEmojiIndex().complete(buffer.substring(wordStart), limit, emojiNames);
+		plugin.getLoadShedder().record(System.nanoTime() - start);
+		if (emojiNames.isEmpty())
 			return;
-		}
 		
-		// Checks if the user disabled shortcuts via /emojichat toggle
-		if (!plugin.getEmojiHandler().hasShortcutsOff(event.getPlayer())) {
-			command = plugin.getEmojiHandler().translateShorthand(command);
+		List<String> completions = new ArrayList<>(event.getCompletions());
+		for (String emojiName : emojiNames) {
+			if (!completions.contains(emojiName)) { // The command's own completer might have suggested it already
+				completions.add(emojiName);
+			}
 		}
-		
-		// Replace shortcuts with emojis
-		command = plugin.getEmojiHandler().toEmoji(command);
-				
-		event.setMessage(command);
+		event.setCompletions(completions);
+	}
+	
+	/**
+	 * Records how long a main thread handler took, for load shedding and the metrics.
+	 *
+	 * @param mode The handler's translation mode.
+	 * @param start When the handler started, from {@link System#nanoTime()}.
+	 */
+	private void recordLatency(TranslationMode mode, long start) {
+		long nanos = System.nanoTime() - start;
+		plugin.getLoadShedder().record(nanos);
+		plugin.getEmojiHandler().getMetrics().record(mode, nanos);
 	}
 }
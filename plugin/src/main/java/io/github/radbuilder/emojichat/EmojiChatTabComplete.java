@@ -14,19 +14,23 @@ import java.util.List;
  * EmojiChat tab completer.
  *
  * @author RadBuilder
- * @version 1.7
+ * @version 1.8.1
  * @since 1.7
  */
 class EmojiChatTabComplete implements TabCompleter {
 	/**
 	 * The list of /emojichat sub-commands.
 	 */
-	private final List<String> SUB_COMMANDS = new ArrayList<>(Arrays.asList("help", "resourcepack", "reload", "toggle"));
+	private final List<String> SUB_COMMANDS = new ArrayList<>(Arrays.asList("help", "resourcepack", "reload", "toggle", "stats", "top"));
 	
 	@Override
 	public List<String> onTabComplete(CommandSender sender, Command command, String s, String[] args) {
 		// The possible completions
 		List<String> completions = new ArrayList<>();
+		if (args.length > 1) { // None of the sub-commands take an argument that can be completed
+			return completions;
+		}
+		
 		// Gets the matches
 		StringUtil.copyPartialMatches(args[0], SUB_COMMANDS, completions);
 		// Sort the completions
@@ -0,0 +1,101 @@
+package io.github.radbuilder.emojichat.utils;
+
+import java.util.Collection;
+import java.util.Locale;
+
+/**
+ * Immutable, case-insensitive set of command names (i.e. /msg), looked up straight from a command line without
+ * splitting it or lower-casing it first.
+ *
+ * @author RadBuilder
+ * @version 1.8.1
+ * @since 1.8.1
+ */
+public final class CommandSet {
+	/**
+	 * The lower-cased commands, in an open addressing hash table. Empty slots are null.
+	 */
+	private final String[] table;
+	/**
+	 * The mask to turn a hash into a slot index.
+	 */
+	private final int mask;
+	
+	/**
+	 * Creates the command set.
+	 *
+	 * @param commands The commands, i.e. /msg.
+	 */
+	public CommandSet(Collection<String> commands) {
+		int capacity = 4;
+		while (capacity < commands.size() * 2) { // Keep the table at most half full
+			capacity <<= 1;
+		}
+		table = new String[capacity];
+		mask = capacity - 1;
+		
+		for (String command : commands) {
+			String lowerCommand = command.toLowerCase(Locale.ROOT);
+			int slot = hash(lowerCommand, lowerCommand.length()) & mask;
+			while (table[slot] != null && !table[slot].equals(lowerCommand)) {
+				slot = (slot + 1) & mask;
+			}
+			table[slot] = lowerCommand;
+		}
+	}
+	
+	/**
+	 * Checks if the command of the specified command line (everything up to the first space) is in the set.
+	 *
+	 * @param commandLine The command line, i.e. /msg RadBuilder hi.
+	 * @return True if the command is in the set, false otherwise.
+	 */
+	public boolean containsCommandOf(String commandLine) {
+		int end = commandLine.indexOf(' ');
+		if (end < 0) {
+			end = commandLine.length();
+		}
+		
+		for (int slot = hash(commandLine, end) & mask; table[slot] != null; slot = (slot + 1) & mask) {
+			if (regionEquals(table[slot], commandLine, end)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Hashes the first characters of the specified text, ignoring case.
+	 *
+	 * @param text The text to hash.
+	 * @param end The number of characters to hash.
+	 * @return The hash.
+	 */
+	private static int hash(String text, int end) {
+		int hash = 0;
+		for (int i = 0; i < end; i++) {
+			hash = 31 * hash + Character.toLowerCase(text.charAt(i));
+		}
+		return hash ^ (hash >>> 16);
+	}
+	
+	/**
+	 * Checks if the lower-cased command equals the first characters of the command line, ignoring case.
+	 *
+	 * @param command The lower-cased command.
+	 * @param commandLine The command line.
+	 * @param end The length of the command in the command line.
+	 * @return True if they're equal, false otherwise.
+	 */
+	private static boolean regionEquals(String command, String commandLine, int end) {
+		if (command.length() != end) {
+			return false;
+		}
+		for (int i = 0; i < end; i++) {
+			if (command.charAt(i) != Character.toLowerCase(commandLine.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,143 @@
+package io.github.radbuilder.emojichat.utils;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Watches a file (config.yml) for changes on its own daemon thread and runs a callback once the file stops changing.
+ * <p>
+ * Editors often save in several writes, or write a temporary file and rename it over the original, so the callback
+ * only runs after the file has been quiet for the debounce time. Changes to other files in the directory are ignored.
+ *
+ * @author RadBuilder
+ * @version 1.8.1
+ * @since 1.8.1
+ */
+public class ConfigWatcher implements Runnable {
+	/**
+	 * The directory the file is in.
+	 */
+	private final Path directory;
+	/**
+	 * The name of the watched file.
+	 */
+	private final Path fileName;
+	/**
+	 * How long the file has to be quiet before the callback runs, in nanoseconds.
+	 */
+	private final long debounceNanos;
+	/**
+	 * The callback, run on the watcher thread.
+	 */
+	private final Runnable onChange;
+	/**
+	 * The logger to report problems to.
+	 */
+	private final Logger logger;
+	/**
+	 * The watch service, or null if the watcher isn't running.
+	 */
+	private WatchService watchService;
+	/**
+	 * The watcher thread, or null if the watcher isn't running.
+	 */
+	private Thread thread;
+	
+	/**
+	 * Creates the config watcher. Call {@link #start()} to start watching.
+	 *
+	 * @param file The file to watch.
+	 * @param debounceMillis How long the file has to be quiet before the callback runs, in milliseconds.
+	 * @param onChange The callback, run on the watcher thread.
+	 * @param logger The logger to report problems to.
+	 */
+	public ConfigWatcher(Path file, long debounceMillis, Runnable onChange, Logger logger) {
+		this.directory = file.toAbsolutePath().getParent();
+		this.fileName = file.getFileName();
+		this.debounceNanos = TimeUnit.MILLISECONDS.toNanos(debounceMillis);
+		this.onChange = onChange;
+		this.logger = logger;
+	}
+	
+	/**
+	 * Starts watching the file.
+	 *
+	 * @throws IOException If the directory can't be watched.
+	 */
+	public void start() throws IOException {
+		watchService = directory.getFileSystem().newWatchService();
+		directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+		thread = new Thread(this, "EmojiChat config watcher");
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	/**
+	 * Stops watching the file. A pending change is dropped.
+	 */
+	public void stop() {
+		if (thread != null) {
+			thread.interrupt();
+			thread = null;
+		}
+		if (watchService != null) {
+			try {
+				watchService.close(); // Wakes up the watcher thread
+			} catch (IOException ignored) {
+			}
+			watchService = null;
+		}
+	}
+	
+	@Override
+	public void run() {
+		WatchService watchService = this.watchService;
+		try {
+			while (!Thread.currentThread().isInterrupted()) {
+				if (!changed(watchService.take())) {
+					continue;
+				}
+				
+				// Wait until the file has been quiet for the debounce time
+				long deadline = System.nanoTime() + debounceNanos;
+				long remaining;
+				while ((remaining = deadline - System.nanoTime()) > 0) {
+					WatchKey key = watchService.poll(remaining, TimeUnit.NANOSECONDS);
+					if (key != null && changed(key)) {
+						deadline = System.nanoTime() + debounceNanos;
+					}
+				}
+				
+				try {
+					onChange.run();
+				} catch (RuntimeException e) { // Keep watching
+					logger.log(Level.WARNING, "Couldn't handle the change to " + fileName, e);
+				}
+			}
+		} catch (InterruptedException | ClosedWatchServiceException e) { // Stopped
+		}
+	}
+	
+	/**
+	 * Takes the events of the specified watch key and checks if any of them is about the watched file.
+	 *
+	 * @param key The signalled watch key.
+	 * @return True if the watched file changed, or events were lost and it might have, false otherwise.
+	 */
+	private boolean changed(WatchKey key) {
+		boolean changed = false;
+		for (WatchEvent<?> event : key.pollEvents()) {
+			changed |= event.kind() == StandardWatchEventKinds.OVERFLOW || fileName.equals(event.context());
+		}
+		key.reset();
+		return changed;
+	}
+}
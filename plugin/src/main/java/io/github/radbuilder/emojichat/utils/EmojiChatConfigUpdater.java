@@ -24,7 +24,7 @@ public class EmojiChatConfigUpdater {
 	/**
 	 * The current config version number.
 	 */
-	private final int CONFIG_VERSION = 5;
+	private final int CONFIG_VERSION = 13;
 	
 	/**
 	 * Creates the EmojiChat config updater with the main class instance.
@@ -70,12 +70,52 @@ public class EmojiChatConfigUpdater {
 		int packVariant = config.contains("pack-variant") ? config.getInt("pack-variant") : 1;
 		boolean disableEmojis = config.contains("disable-emojis") ? config.getBoolean("disable-emojis") : true;
 		
+		// Config v6 values
+		boolean packServerEnabled = config.getBoolean("resourcepack-server.enabled", false);
+		String packServerAddress = config.getString("resourcepack-server.address", "");
+		int packServerPort = config.getInt("resourcepack-server.port", 8163);
+		String packServerPublicUrl = config.getString("resourcepack-server.public-url", "");
+		String packServerFile = config.getString("resourcepack-server.file", "UKSRTemoji.zip");
+		int packServerMaxDownloads = config.getInt("resourcepack-server.max-downloads", 8);
+		
+		// Config v7 values
+		int packSendsPerTick = config.getInt("resourcepack-sends-per-tick", 5);
+		int packRetries = config.getInt("resourcepack-retries", 3);
+		int packRetryDelay = config.getInt("resourcepack-retry-delay", 100);
+		
+		// Config v8 values
+		boolean metrics = config.getBoolean("metrics", true);
+		
+		// Config v9 values
+		int tabCompleteLimit = config.getInt("tab-complete-limit", 20);
+		
+		// Config v10 values
+		boolean autoReload = config.getBoolean("auto-reload.enabled", false);
+		long autoReloadDelay = config.getLong("auto-reload.delay", 500L);
+		
+		// Config v11 values
+		int maxExpandedLength = config.getInt("max-expanded-length", 0);
+		
+		// Config v12 values
+		int translationCacheSize = config.getInt("translation-cache-size", 1024);
+		
+		// Config v13 values
+		boolean loadShedding = config.getBoolean("load-shedding.enabled", true);
+		double loadSheddingTickMillis = config.getDouble("load-shedding.tick-ms", 55.0);
+		double loadSheddingHandlerMillis = config.getDouble("load-shedding.handler-ms", 2.0);
+		int loadSheddingRecoverSeconds = config.getInt("load-shedding.recover-seconds", 30);
+		String loadSheddingMaxLevel = config.getString("load-shedding.max-level", "names-only");
+		
 		// Config lines
 		List<String> configLines = new ArrayList<>();
 		configLines.add("# Configuration file for EmojiChat by RadBuilder");
 		configLines.add("");
 		configLines.add("# If you're using chat color plugins, this will remove the coloring for emojis to be displayed correctly.");
 		configLines.add("fix-emoji-coloring: " + fixEmojiColoring);
+		configLines.add("# The longest a message may get once its emojis (and their colors) are added, or 0 for no limit. Longer messages get");
+		configLines.add("# their emojis without colors, or stay as they were if that's still too long. Only needed if something downstream");
+		configLines.add("# (i.e. a chat bridge) can't handle longer lines; the client itself accepts much longer messages than it can send.");
+		configLines.add("max-expanded-length: " + maxExpandedLength);
 		configLines.add("");
 		configLines.add("# If emojis should be displayed on signs (shortcuts and full names supported).");
 		configLines.add("emojis-on-signs: " + emojisOnSigns);
@@ -93,6 +133,59 @@ public class EmojiChatConfigUpdater {
 		configLines.add("# If EmojiChat should auto download the ResourcePack. If you'd rather have your players manually");
 		configLines.add("# download or use /emojichat resourcepack, set this to false.");
 		configLines.add("download-resourcepack: " + downloadResourcePack);
+		configLines.add("# How many players get sent the ResourcePack per tick, so lots of players joining at once don't all download it together.");
+		configLines.add("resourcepack-sends-per-tick: " + packSendsPerTick);
+		configLines.add("# How many times to resend the ResourcePack if a download fails, and how many ticks to wait before the first retry");
+		configLines.add("# (every retry after that waits twice as long).");
+		configLines.add("resourcepack-retries: " + packRetries);
+		configLines.add("resourcepack-retry-delay: " + packRetryDelay);
+		configLines.add("# The ResourcePack variant to use. Only variant 1 is bundled right now, any other value is rejected and variant 1 is used.");
+		configLines.add("pack-variant: " + packVariant);
+		configLines.add("");
+		configLines.add("# The built-in ResourcePack server sends players the ResourcePack from this server, along with its SHA-1 hash so");
+		configLines.add("# players only download it again when it changes. If it's off, players download it from the default link.");
+		configLines.add("resourcepack-server:");
+		configLines.add("  enabled: " + packServerEnabled);
+		configLines.add("  # The local address to listen on. Leave empty to use this server's address (server-ip in server.properties); if");
+		configLines.add("  # that's empty too, the ResourcePack server listens on every network interface.");
+		configLines.add("  address: '" + packServerAddress + "'");
+		configLines.add("  port: " + packServerPort);
+		configLines.add("  # The URL players download the ResourcePack from. Leave empty to use http://<address>:<port>/<file>.");
+		configLines.add("  public-url: '" + packServerPublicUrl + "'");
+		configLines.add("  # The ResourcePack file, in the EmojiChat folder. UKSRTemoji.zip is the ResourcePack that comes with EmojiChat.");
+		configLines.add("  file: '" + packServerFile + "'");
+		configLines.add("  # How many players can download the ResourcePack at once.");
+		configLines.add("  max-downloads: " + packServerMaxDownloads);
+		configLines.add("");
+		configLines.add("# How many emoji names to suggest when pressing tab on a word starting with ':' (i.e. :thin) in commands that allow");
+		configLines.add("# emojis. Clients don't ask the server to complete plain chat, so it only works in commands. Set to 0 to turn emoji");
+		configLines.add("# tab completion off.");
+		configLines.add("tab-complete-limit: " + tabCompleteLimit);
+		configLines.add("");
+		configLines.add("# If EmojiChat should record translation stats (see /emojichat stats, also available over JMX).");
+		configLines.add("metrics: " + metrics);
+		configLines.add("");
+		configLines.add("# How many translated messages to remember, so chat lines that keep coming back (i.e. \"lol :)\") aren't translated");
+		configLines.add("# again every time. Set to 0 to turn the cache off.");
+		configLines.add("translation-cache-size: " + translationCacheSize);
+		configLines.add("");
+		configLines.add("# If EmojiChat should reload this config by itself when it's saved, and how many milliseconds to wait for");
+		configLines.add("# the file to stop changing first.");
+		configLines.add("auto-reload:");
+		configLines.add("  enabled: " + autoReload);
+		configLines.add("  delay: " + autoReloadDelay);
+		configLines.add("");
+		configLines.add("# If EmojiChat should do less on the main thread (signs, commands and tab completion) when the server falls behind.");
+		configLines.add("# It steps down one level per second while the average tick takes longer than tick-ms, or EmojiChat takes longer");
+		configLines.add("# than handler-ms per tick: first emoji coloring isn't fixed, then shortcuts aren't translated, then only :emoji_names:");
+		configLines.add("# and Unicode emojis (found in the same pass) are translated, and names aren't tab completed. It steps back up after");
+		configLines.add("# recover-seconds without pressure. max-level is the lowest it goes: no-color-fix, no-shorthand or names-only.");
+		configLines.add("load-shedding:");
+		configLines.add("  enabled: " + loadShedding);
+		configLines.add("  tick-ms: " + loadSheddingTickMillis);
+		configLines.add("  handler-ms: " + loadSheddingHandlerMillis);
+		configLines.add("  recover-seconds: " + loadSheddingRecoverSeconds);
+		configLines.add("  max-level: " + loadSheddingMaxLevel);
 		configLines.add("");
 		configLines.add("# Shortcuts will replace the items in the list with the correct emoji name.");
 		configLines.add("# For example, :) will be replaced with :grinning:, which then will turn it into the emoji.");
@@ -166,7 +259,10 @@ public class EmojiChatConfigUpdater {
 			configLines.add("  oncoming_police_car:");
 			configLines.add("  - ':fbi:'");
 			configLines.add("  - ':police:'");
-		}		
+		}
+		configLines.add("");
+		configLines.add("# Don't change this, it's used to update your config.");
+		configLines.add("config-version: " + CONFIG_VERSION);
 		// Update the config
 		setConfig(plugin, configLines);
 		// Clear non-used lists
@@ -0,0 +1,178 @@
+package io.github.radbuilder.emojichat.utils;
+
+import java.util.UUID;
+
+/**
+ * Per-player EmojiChat session state: the shortcut toggle and what the player is allowed to do.
+ * <p>
+ * Profiles are built when the player joins and dropped when they quit, so the listeners only need a single map lookup
+ * instead of a list scan and two permission checks per event. The shortcut toggle is saved in the
+ * {@link PreferenceStore}, so it outlives the profile.
+ *
+ * @author RadBuilder
+ * @version 1.8.1
+ * @since 1.8.1
+ */
+public class EmojiChatProfile {
+	/**
+	 * Capability: using emojis in chat (emojichat.use and emojichat.use.chat).
+	 */
+	public static final int USE_CHAT = 1;
+	/**
+	 * Capability: using emojis on signs (emojichat.use and emojichat.use.sign).
+	 */
+	public static final int USE_SIGN = 1 << 1;
+	/**
+	 * Capability: using emojis in commands (emojichat.use and emojichat.use.command).
+	 */
+	public static final int USE_COMMAND = 1 << 2;
+	/**
+	 * Capability: seeing emojis (emojichat.see).
+	 */
+	public static final int SEE = 1 << 3;
+	/**
+	 * Preference: emoji shortcuts are off (/emojichat toggle).
+	 */
+	public static final int SHORTCUTS_OFF = 1;
+	
+	/**
+	 * The player's UUID.
+	 */
+	private final UUID uuid;
+	/**
+	 * The player's capabilities, as a bitmask of {@link #USE_CHAT}, {@link #USE_SIGN}, {@link #USE_COMMAND} and
+	 * {@link #SEE}.
+	 */
+	private volatile int capabilities;
+	/**
+	 * If the player turned shortcuts off.
+	 */
+	private volatile boolean shortcutsOff;
+	/**
+	 * The ResourcePack last sent to the player this session (its hash, or URL if the hash isn't known), or null if none
+	 * was sent. Only used on the main thread.
+	 */
+	private String sentPack;
+	/**
+	 * The ResourcePack the player reported as loaded this session, or null if none was loaded. Only used on the main
+	 * thread.
+	 */
+	private String loadedPack;
+	/**
+	 * How many times in a row the ResourcePack was sent, counting the first send and its retries. Only used on the main
+	 * thread.
+	 */
+	private int packAttempts;
+	
+	/**
+	 * Creates a profile for the specified player.
+	 *
+	 * @param uuid The player's UUID.
+	 * @param capabilities The player's capabilities.
+	 */
+	EmojiChatProfile(UUID uuid, int capabilities) {
+		this.uuid = uuid;
+		this.capabilities = capabilities;
+	}
+	
+	/**
+	 * Gets the player's UUID.
+	 *
+	 * @return The player's UUID.
+	 */
+	public UUID getUniqueId() {
+		return uuid;
+	}
+	
+	/**
+	 * Checks if the player has the specified capability.
+	 *
+	 * @param capability The capability to check, i.e. {@link #USE_CHAT}.
+	 * @return True if the player has the capability, false otherwise.
+	 */
+	public boolean can(int capability) {
+		return (capabilities & capability) == capability;
+	}
+	
+	/**
+	 * Sets the player's capabilities.
+	 *
+	 * @param capabilities The player's new capabilities.
+	 */
+	void setCapabilities(int capabilities) {
+		this.capabilities = capabilities;
+	}
+	
+	/**
+	 * Checks if the player has emoji shortcuts off.
+	 *
+	 * @return True if the player has shortcuts off, false otherwise.
+	 */
+	public boolean hasShortcutsOff() {
+		return shortcutsOff;
+	}
+	
+	/**
+	 * Turns emoji shortcuts off or on for the player.
+	 *
+	 * @param shortcutsOff True to turn shortcuts off, false to turn them on.
+	 */
+	void setShortcutsOff(boolean shortcutsOff) {
+		this.shortcutsOff = shortcutsOff;
+	}
+	
+	/**
+	 * Gets the player's saved preferences.
+	 *
+	 * @return The player's preferences, as a bitmask of {@link #SHORTCUTS_OFF}.
+	 */
+	int getPreferences() {
+		return shortcutsOff ? SHORTCUTS_OFF : 0;
+	}
+	
+	/**
+	 * Sets the player's saved preferences.
+	 *
+	 * @param preferences The player's preferences, as a bitmask of {@link #SHORTCUTS_OFF}.
+	 */
+	void setPreferences(int preferences) {
+		shortcutsOff = (preferences & SHORTCUTS_OFF) != 0;
+	}
+	
+	/**
+	 * Gets the ResourcePack the player reported as loaded this session.
+	 *
+	 * @return The loaded pack's hash (or URL if the hash isn't known), or null if none was loaded.
+	 */
+	public String getLoadedPack() {
+		return loadedPack;
+	}
+	
+	/**
+	 * Records that the specified ResourcePack was sent to the player.
+	 *
+	 * @param pack The pack's hash, or URL if the hash isn't known.
+	 * @param retry If this is a retry after a failed download, rather than a new send.
+	 */
+	void packSent(String pack, boolean retry) {
+		sentPack = pack;
+		packAttempts = retry ? packAttempts + 1 : 1;
+	}
+	
+	/**
+	 * Records that the player loaded the ResourcePack that was last sent to them.
+	 */
+	void packLoaded() {
+		loadedPack = sentPack;
+		packAttempts = 0;
+	}
+	
+	/**
+	 * Gets how many times in a row the ResourcePack was sent, counting the first send and its retries.
+	 *
+	 * @return The number of attempts.
+	 */
+	int getPackAttempts() {
+		return packAttempts;
+	}
+}
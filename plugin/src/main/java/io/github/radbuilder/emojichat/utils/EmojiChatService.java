@@ -0,0 +1,85 @@
+package io.github.radbuilder.emojichat.utils;
+
+import java.util.function.Consumer;
+
+/**
+ * The EmojiChat API for other plugins, registered with the Bukkit ServicesManager:
+ * {@code Bukkit.getServicesManager().load(EmojiChatService.class)}.
+ * <p>
+ * Every method is thread-safe. Translations always use one consistent {@link EmojiTable snapshot}, even while
+ * EmojiChat reloads.
+ *
+ * @author RadBuilder
+ * @version 1.8.1
+ * @since 1.8.1
+ */
+public interface EmojiChatService {
+	/**
+	 * Appends the specified text to the builder, with its shortcuts (i.e. :)) and emoji names (i.e. :100:) translated
+	 * to emoji. Nothing is copied besides appending to the builder.
+	 *
+	 * @param text The text to translate.
+	 * @param builder The builder to append the translated text to.
+	 * @param mode Where the text ends up.
+	 */
+	void appendTranslated(CharSequence text, StringBuilder builder, TranslationMode mode);
+	
+	/**
+	 * Appends the specified text to the builder, with its emoji names (i.e. :100:), and shortcuts (i.e. :)) if enabled,
+	 * translated to emoji. Nothing is copied besides appending to the builder.
+	 *
+	 * @param text The text to translate.
+	 * @param builder The builder to append the translated text to.
+	 * @param mode Where the text ends up.
+	 * @param shortcuts If shortcuts should be translated.
+	 */
+	void appendTranslated(CharSequence text, StringBuilder builder, TranslationMode mode, boolean shortcuts);
+	
+	/**
+	 * Translates the specified message's emoji names (i.e. :100:), and shortcuts (i.e. :)) if enabled, to emoji.
+	 *
+	 * @param message The message to translate.
+	 * @param mode Where the message ends up.
+	 * @param shortcuts If shortcuts should be translated.
+	 * @return The translated message, or the same message instance if there was nothing to translate.
+	 */
+	String translate(String message, TranslationMode mode, boolean shortcuts);
+	
+	/**
+	 * Appends the specified text to the builder, with its emojis turned back into their names (i.e. :100:).
+	 *
+	 * @param text The text with emojis.
+	 * @param builder The builder to append to.
+	 */
+	void appendNames(CharSequence text, StringBuilder builder);
+	
+	/**
+	 * Turns the emojis in the specified message back into their names (i.e. :100:).
+	 *
+	 * @param message The message with emojis.
+	 * @return The message with emoji names, or the same message instance if it doesn't contain emojis.
+	 */
+	String toNames(String message);
+	
+	/**
+	 * Gets the current emoji table: a read-only snapshot of the emojis and shortcuts. It never changes; a reload
+	 * replaces it with a new one.
+	 *
+	 * @return The current emoji table.
+	 */
+	EmojiTable getSnapshot();
+	
+	/**
+	 * Adds a listener that's called with the new emoji table after every reload, on the main thread.
+	 *
+	 * @param listener The listener to add.
+	 */
+	void addReloadListener(Consumer<EmojiTable> listener);
+	
+	/**
+	 * Removes a reload listener.
+	 *
+	 * @param listener The listener to remove.
+	 */
+	void removeReloadListener(Consumer<EmojiTable> listener);
+}
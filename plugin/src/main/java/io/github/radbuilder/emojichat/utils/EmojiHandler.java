@@ -1,44 +1,67 @@
 package io.github.radbuilder.emojichat.utils;
 
 import io.github.radbuilder.emojichat.EmojiChat;
-import org.apache.commons.lang.StringUtils;
-import org.bukkit.ChatColor;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.entity.Player;
 
-import java.io.BufferedReader;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.io.File;
 import java.util.LinkedHashMap;
-import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.logging.Level;
 
 /**
  * Emoji handler class.
  *
  * @author RadBuilder
- * @version 1.7
+ * @version 1.8.1
  * @since 1.4
  */
-public class EmojiHandler {
+public class EmojiHandler implements EmojiChatService {
 	/**
-	 * The emojis.
+	 * The current emoji table. Replaced as a whole on every load, never modified.
 	 */
-	private final LinkedHashMap<String, Character> emojis;
+	private volatile EmojiTable table;
 	/**
-	 * Shortcuts for the emojis, if specified.
+	 * The emoji index. It's bundled with the plugin and can't change while the server runs, so it's only loaded once.
 	 */
-	private final HashMap<String, String> shortcuts;
+	private volatile EmojiIndex emojis;
 	/**
-	 * If we should fix the emoji's color (colored chat removes emoji coloring)
+	 * Counts the messages that didn't contain a single trigger character, across reloads.
 	 */
-	private boolean fixColoring;
+	private final LongAdder fastPaths;
 	/**
-	 * A list of users (by UUID) who turned shortcuts off.
+	 * The translation metrics.
 	 */
-	private List<UUID> shortcutsOff;
+	private final EmojiChatMetrics metrics;
+	/**
+	 * The profiles of the online players, by UUID.
+	 */
+	private final ConcurrentHashMap<UUID, EmojiChatProfile> profiles;
+	/**
+	 * The saved player preferences.
+	 */
+	private final PreferenceStore preferences;
+	/**
+	 * How often each emoji and shortcut was used, across reloads and restarts.
+	 */
+	private final EmojiUsage usage;
+	/**
+	 * The ResourcePack variants used so far, by number. Each is only read when it's first selected.
+	 */
+	private final ConcurrentHashMap<Integer, PackVariant> variants;
+	/**
+	 * The ResourcePack variant of the current emoji table, or null before the first load.
+	 */
+	private volatile PackVariant packVariant;
+	/**
+	 * The listeners called after every reload.
+	 */
+	private final CopyOnWriteArrayList<Consumer<EmojiTable>> reloadListeners;
 	/**
 	 * EmojiChat main class instance.
 	 */
@@ -52,29 +75,239 @@ public class EmojiHandler {
 	public EmojiHandler(EmojiChat plugin) {
 		this.plugin = plugin;
 		
-		emojis = new LinkedHashMap<>();
-		shortcuts = new HashMap<>();
-		shortcutsOff = new ArrayList<>();
+		table = EmojiTable.EMPTY;
+		fastPaths = new LongAdder();
+		metrics = new EmojiChatMetrics();
+		profiles = new ConcurrentHashMap<>();
+		preferences = new PreferenceStore(new File(plugin.getDataFolder(), "preferences.log").toPath(), plugin.getLogger());
+		usage = new EmojiUsage(new File(plugin.getDataFolder(), "usage.txt").toPath(), plugin.getLogger());
+		variants = new ConcurrentHashMap<>();
+		reloadListeners = new CopyOnWriteArrayList<>();
 		
 		load(plugin);
 	}
 	
 	/**
-	 * Gets the {@link #emojis} map.
+	 * Gets the current emoji table.
 	 *
-	 * @return {@link #emojis}.
+	 * @return The current emoji table.
 	 */
-	public LinkedHashMap<String, Character> getEmojis() {
-		return emojis;
+	public EmojiTable getTable() {
+		return table;
+	}
+	
+	@Override
+	public EmojiTable getSnapshot() {
+		return table;
+	}
+	
+	@Override
+	public void addReloadListener(Consumer<EmojiTable> listener) {
+		reloadListeners.add(listener);
+	}
+	
+	@Override
+	public void removeReloadListener(Consumer<EmojiTable> listener) {
+		reloadListeners.remove(listener);
 	}
 	
 	/**
-	 * Gets the {@link #shortcuts} map.
+	 * Gets how many messages were returned untouched because they don't contain a single character an emoji name or
+	 * shortcut starts with.
 	 *
-	 * @return The {@link #shortcuts} map.
+	 * @return The number of fast path messages.
 	 */
-	public HashMap<String, String> getShortcuts() {
-		return shortcuts;
+	public long getFastPathCount() {
+		return fastPaths.sum();
+	}
+	
+	/**
+	 * Gets the emojis map.
+	 *
+	 * @return The read-only emojis map.
+	 */
+	public Map<String, Character> getEmojis() {
+		return table.getEmojis();
+	}
+	
+	/**
+	 * Gets the shortcuts map.
+	 *
+	 * @return The read-only shortcuts map.
+	 */
+	public Map<String, String> getShortcuts() {
+		return table.getShortcuts();
+	}
+	
+	/**
+	 * Gets the profile of the specified player. If the player has no profile yet (i.e. they joined before EmojiChat was
+	 * enabled), a temporary one is built, but not stored, so late events for players who already left can't leak it.
+	 *
+	 * @param player The player to get the profile of.
+	 * @return The player's profile.
+	 */
+	public EmojiChatProfile getProfile(Player player) {
+		EmojiChatProfile profile = profiles.get(player.getUniqueId());
+		return profile != null ? profile : newProfile(player);
+	}
+	
+	/**
+	 * Builds and stores the profile of the specified player, if they don't have one yet.
+	 *
+	 * @param player The player to load the profile of.
+	 */
+	public void loadProfile(Player player) {
+		profiles.computeIfAbsent(player.getUniqueId(), uuid -> newProfile(player));
+	}
+	
+	/**
+	 * Builds a profile for the specified player from their permissions and saved preferences.
+	 *
+	 * @param player The player to build the profile of.
+	 * @return The new profile.
+	 */
+	private EmojiChatProfile newProfile(Player player) {
+		EmojiChatProfile profile = new EmojiChatProfile(player.getUniqueId(), getCapabilities(player));
+		profile.setPreferences(preferences.get(player.getUniqueId()));
+		return profile;
+	}
+	
+	/**
+	 * Reads the saved player preferences if they weren't read yet, so they're ready when the player joins. Blocks on the
+	 * disk the first time, so only call this off the main thread, i.e. while the player logs in.
+	 */
+	public void loadPreferences() {
+		preferences.load();
+	}
+	
+	/**
+	 * Applies the saved preferences to the profiles of the specified players, i.e. once the preferences were read after
+	 * they joined.
+	 *
+	 * @param players The players to apply the preferences to.
+	 */
+	public void applyPreferences(Iterable<? extends Player> players) {
+		for (Player player : players) {
+			EmojiChatProfile profile = profiles.get(player.getUniqueId());
+			if (profile != null) {
+				profile.setPreferences(preferences.get(player.getUniqueId()));
+			}
+		}
+	}
+	
+	/**
+	 * Writes the changed player preferences to disk. Only call this off the main thread.
+	 */
+	public void savePreferences() {
+		preferences.flush();
+	}
+	
+	/**
+	 * Gets how often each emoji and shortcut was used.
+	 *
+	 * @return The usage counters.
+	 */
+	public EmojiUsage getUsage() {
+		return usage;
+	}
+	
+	/**
+	 * Reads the saved emoji usage and adds it to the counts since startup. Only call this off the main thread.
+	 */
+	public void loadUsage() {
+		usage.load();
+	}
+	
+	/**
+	 * Writes the emoji usage to disk if it changed. Only call this off the main thread.
+	 */
+	public void saveUsage() {
+		usage.flush();
+	}
+	
+	/**
+	 * Gets the specified ResourcePack variant. Nothing is read until the variant is used.
+	 *
+	 * @param id The variant number.
+	 * @return The variant.
+	 */
+	public PackVariant getPackVariant(int id) {
+		return variants.computeIfAbsent(id, variantId -> new PackVariant(variantId, plugin::getResource, plugin.getLogger()));
+	}
+	
+	/**
+	 * Gets the ResourcePack variant the current emoji table translates for.
+	 *
+	 * @return The current variant, or null before the first load.
+	 */
+	public PackVariant getPackVariant() {
+		return packVariant;
+	}
+	
+	/**
+	 * Gets the ResourcePack variant the specified config selects. Only the default variant is built and bundled with
+	 * EmojiChat, so any other value is rejected and the default variant is used. Reads the pack the first time, so
+	 * call it off the main thread.
+	 *
+	 * @param config The config to get the variant from.
+	 * @return The variant.
+	 */
+	public PackVariant selectPackVariant(FileConfiguration config) {
+		int variantId = config.getInt("pack-variant", PackVariant.DEFAULT);
+		if (variantId != PackVariant.DEFAULT) { // Only one pack is built, see plugin/pom.xml
+			plugin.getLogger().warning("pack-variant " + variantId + " isn't supported, EmojiChat only bundles ResourcePack variant " + PackVariant.DEFAULT + ". Using variant " + PackVariant.DEFAULT + " instead.");
+		}
+		return getPackVariant(PackVariant.DEFAULT);
+	}
+	
+	/**
+	 * Drops the profile of the specified player.
+	 *
+	 * @param player The player to unload the profile of.
+	 */
+	public void unloadProfile(Player player) {
+		profiles.remove(player.getUniqueId());
+	}
+	
+	/**
+	 * Recomputes the capabilities of the specified players, keeping their shortcut toggles.
+	 *
+	 * @param players The players to refresh the profiles of.
+	 */
+	public void refreshProfiles(Iterable<? extends Player> players) {
+		for (Player player : players) {
+			EmojiChatProfile profile = profiles.get(player.getUniqueId());
+			if (profile == null) {
+				loadProfile(player);
+			} else {
+				profile.setCapabilities(getCapabilities(player));
+			}
+		}
+	}
+	
+	/**
+	 * Computes the capabilities of the specified player from their permissions.
+	 *
+	 * @param player The player to compute the capabilities of.
+	 * @return The player's capabilities, as a bitmask of {@link EmojiChatProfile} capabilities.
+	 */
+	private int getCapabilities(Player player) {
+		int capabilities = 0;
+		if (player.hasPermission("emojichat.use")) {
+			if (player.hasPermission("emojichat.use.chat")) {
+				capabilities |= EmojiChatProfile.USE_CHAT;
+			}
+			if (player.hasPermission("emojichat.use.sign")) {
+				capabilities |= EmojiChatProfile.USE_SIGN;
+			}
+			if (player.hasPermission("emojichat.use.command")) {
+				capabilities |= EmojiChatProfile.USE_COMMAND;
+			}
+		}
+		if (player.hasPermission("emojichat.see")) {
+			capabilities |= EmojiChatProfile.SEE;
+		}
+		return capabilities;
 	}
 	
 	/**
@@ -84,20 +317,20 @@ public class EmojiHandler {
 	 * @return True if the player has shortcuts off, false otherwise.
 	 */
 	public boolean hasShortcutsOff(Player player) {
-		return shortcutsOff.contains(player.getUniqueId());
+		EmojiChatProfile profile = profiles.get(player.getUniqueId());
+		return profile != null && profile.hasShortcutsOff();
 	}
 	
 	/**
-	 * Toggles emoji shortcut use on/off for the specified player.
+	 * Toggles emoji shortcut use on/off for the specified player. The change is saved in the background.
 	 *
 	 * @param player The player to toggle emoji shortcuts on/off for.
 	 */
 	public void toggleShortcutsOff(Player player) {
-		if (shortcutsOff.contains(player.getUniqueId())) {
-			shortcutsOff.remove(player.getUniqueId());
-		} else {
-			shortcutsOff.add(player.getUniqueId());
-		}
+		loadProfile(player);
+		EmojiChatProfile profile = profiles.get(player.getUniqueId());
+		profile.setShortcutsOff(!profile.hasShortcutsOff());
+		preferences.set(player.getUniqueId(), profile.getPreferences());
 	}
 	
 	/**
@@ -118,13 +351,16 @@ public class EmojiHandler {
 	 * Loads the emoji shortcuts from the config.
 	 *
 	 * @param config The config to load emoji shortcuts from.
+	 * @return The shortcuts, mapped to the emoji name they stand for.
 	 */
-	private void loadShortcuts(FileConfiguration config) {
+	private LinkedHashMap<String, String> loadShortcuts(FileConfiguration config) {
+		LinkedHashMap<String, String> shortcuts = new LinkedHashMap<>(); // Keeps the config order, which decides which overlapping shortcut wins
 		for (String key : config.getConfigurationSection("shortcuts").getKeys(false)) { // Gets all of the headers/keys in the shortcuts section
 			for (String shortcutListItem : config.getStringList("shortcuts." + key)) { // Gets all of the shortcuts for the key
 				shortcuts.put(shortcutListItem, ":" + key + ":");
 			}
 		}
+		return shortcuts;
 	}
 	
 	/**
@@ -133,62 +369,127 @@ public class EmojiHandler {
 	 * @return True if emoji coloring should be fixed, false otherwise.
 	 */
 	public boolean fixColoring() {
-		return fixColoring;
+		return table.fixColoring();
 	}
 	
 	/**
-	 * Loads the emojis and their shortcuts into the {@link #emojis}.
+	 * Loads the compiled emoji index bundled with EmojiChat.
+	 *
+	 * @return The emoji index, or an empty index if it couldn't be loaded.
 	 */
-	private void loadEmojis() {
-		char emojiChar = '娀';
-		
+	private EmojiIndex loadEmojis() {
 		try {
-			InputStream listInput = getClass().getResourceAsStream("/list.txt");
-			BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(listInput));
-			String line;
-			while ((line = bufferedReader.readLine()) != null) {
-				if (line.startsWith("#")) { // Ignored lines
-					continue;
-				}
-				emojis.put(line, emojiChar++); // Add the emoji we're currently on and switch it to the next char
-			}
-			bufferedReader.close();
-			listInput.close();
+			return EmojiIndex.loadBundled();
 		} catch (Exception e) {
 			plugin.getLogger().warning("An error occured while loading emojis. More info below.");
 			e.printStackTrace();
+			return EmojiIndex.EMPTY;
 		}
 	}
 	
 	/**
-	 * Clears the {@link #emojis}, {@link #shortcuts}, and {@link #disabledCharacters} maps.
+	 * Clears the emoji table and the player profiles, saves the changed player preferences and the emoji usage, and
+	 * unregisters the metrics.
 	 */
 	public void disable() {
-		emojis.clear();
-		shortcuts.clear();
-		shortcutsOff.clear();
+		table = EmojiTable.EMPTY;
+		profiles.clear();
+		preferences.flush(); // The server is stopping, so waiting on the disk is fine
+		usage.flush();
+		
+		metrics.setEnabled(false, plugin.getLogger());
 	}
 	
 	/**
-	 * Loads the emoji handler data.
+	 * Loads the emoji handler data. The new emoji table is built completely before it replaces the current one, so
+	 * messages translated during a reload use either the old or the new table, never a partial one.
 	 *
 	 * @param plugin The EmojiChat main class instance.
 	 */
 	public void load(EmojiChat plugin) {
-		disable();
-
-		loadEmojis(); // Loads ALL emojis
+		PackVariant variant = selectPackVariant(plugin.getConfig());
+		publish(compile(plugin.getConfig(), variant), variant, plugin.getConfig());
+	}
+	
+	/**
+	 * Compiles the emoji table for the specified config, without publishing it. Only what changed since the current
+	 * table is compiled again. Safe to call off the main thread.
+	 *
+	 * @param config The config to compile.
+	 * @param variant The ResourcePack variant to translate for, from {@link #selectPackVariant(FileConfiguration)}.
+	 * @return The new emoji table, or the current one if nothing changed.
+	 */
+	public EmojiTable compile(FileConfiguration config, PackVariant variant) {
+		EmojiIndex emojis = this.emojis;
+		if (emojis == null || emojis.size() == 0) { // Not loaded yet, or loading failed last time
+			this.emojis = emojis = loadEmojis(); // Loads ALL emojis
+		}
+		LinkedHashMap<String, String> shortcuts = new LinkedHashMap<>();
+		boolean fixColoring = false;
+		int maxLength = config.getInt("max-expanded-length", EmojiTable.DEFAULT_MAX_LENGTH);
 		
-		if (!validateConfig(plugin.getConfig())) { // Make sure the config is valid
+		if (!validateConfig(config)) { // Make sure the config is valid
 			plugin.getLogger().warning("Your config is invalid. No configuation data was loaded.");
 			plugin.getLogger().warning("Fix your config, then use /emojichat reload");
 			plugin.getLogger().warning("If you're still running into issues after fixing your config, delete it and restart your server.");
 		} else { // Config is valid, load config data
-			loadShortcuts(plugin.getConfig()); // Loads all of the shortcuts specified in the config
-			fixColoring = plugin.getConfig().getBoolean("fix-emoji-coloring");
+			shortcuts = loadShortcuts(config); // Loads all of the shortcuts specified in the config
+			fixColoring = config.getBoolean("fix-emoji-coloring");
+		}
+		
+		EmojiTable table = this.table;
+		if (table.getEmojiIndex() != emojis) { // First load, compile everything
+			table = new EmojiTable(emojis, shortcuts, fixColoring, maxLength, fastPaths, usage);
+		} else {
+			table = table.update(shortcuts, fixColoring, maxLength);
+		}
+		table = table.withGlyphs(variant.getGlyphs(emojis)); // Reads the variant's pack the first time it's selected
+		return table.withCacheSize(config.getInt("translation-cache-size", 1024));
+	}
+	
+	/**
+	 * Publishes the specified emoji table in one go and calls the reload listeners. Call on the main thread.
+	 *
+	 * @param table The emoji table, from {@link #compile(FileConfiguration, PackVariant)}.
+	 * @param variant The ResourcePack variant the table was compiled for.
+	 * @param config The config the table was compiled from.
+	 */
+	public void publish(EmojiTable table, PackVariant variant, FileConfiguration config) {
+		packVariant = variant;
+		this.table = table;
+		metrics.setEnabled(config.getBoolean("metrics", true), plugin.getLogger());
+		
+		for (Consumer<EmojiTable> listener : reloadListeners) {
+			try {
+				listener.accept(table);
+			} catch (RuntimeException e) { // Don't let another plugin break our reload
+				plugin.getLogger().log(Level.WARNING, "An EmojiChat reload listener threw an exception", e);
+			}
 		}
 	}
 	
+	/**
+	 * Gets the translation metrics.
+	 *
+	 * @return The translation metrics.
+	 */
+	public EmojiChatMetrics getMetrics() {
+		return metrics;
+	}
+	
+	/**
+	 * Translates the specified message's shortcuts (i.e. :)) and emoji names (i.e. :100:) to emoji in a single pass.
+	 *
+	 * @param message The message to translate.
+	 * @param mode Where the message ends up.
+	 * @param shortcuts If shortcuts should be translated (false if the player turned them off).
+	 * @return The translated message.
+	 */
+	@Override
+	public String translate(String message, TranslationMode mode, boolean shortcuts) {
+		return table.translate(message, mode, shortcuts, metrics.isEnabled() ? metrics : null);
+	}
+	
 	/**
 	 * Converts the specified message's shortcuts (i.e. :100:) to emoji.
 	 *
@@ -196,10 +497,7 @@ public class EmojiHandler {
 	 * @return The converted message.
 	 */
 	public String toEmoji(String message) {
-		for (String key : emojis.keySet()) {
-			message = message.replace(key, plugin.getEmojiHandler().getEmojis().get(key).toString());
-		}
-		return message;
+		return translate(message, TranslationMode.COMMAND, false);
 	}
 	
 	/**
@@ -209,10 +507,7 @@ public class EmojiHandler {
 	 * @return The converted line from sign.
 	 */
 	public String toEmojiFromSign(String line) {
-		for (String key : emojis.keySet()) {
-			line = line.replace(key, ChatColor.WHITE + "" + emojis.get(key) + ChatColor.BLACK); // Sets the emoji color to white for correct coloring
-		}
-		return line;
+		return translate(line, TranslationMode.SIGN, false);
 	}
 	
 	/**
@@ -222,17 +517,34 @@ public class EmojiHandler {
 	 * @return The converted message from chat.
 	 */
 	public String toEmojiFromChat(String message) {
-		// If we're not fixing the coloring, or the message is too small to have coloring
-		if (!fixColoring || message.length() < 3) {
-			message = toEmoji(message);
-		} else {
-			String chatColor = message.substring(0, 2); // Gets the chat color of the message, i.e. §a
-			boolean hasColor = chatColor.contains("§");
-			for (String key : emojis.keySet()) {
-				message = message.replace(key, ChatColor.WHITE + "" + emojis.get(key) + (hasColor ? chatColor : "")); // Sets the emoji color to white for correct coloring
-			}
-		}
-		return message;
+		return translate(message, TranslationMode.CHAT, false);
+	}
+	
+	/**
+	 * Turns the emojis in the specified message back into their names (i.e. :100:), i.e. for console logs and chat
+	 * bridges where the ResourcePack isn't loaded.
+	 *
+	 * @param message The message with emojis.
+	 * @return The message with emoji names.
+	 */
+	@Override
+	public String toNames(String message) {
+		return table.getEmojiIndex().toNames(message);
+	}
+	
+	@Override
+	public void appendNames(CharSequence text, StringBuilder builder) {
+		table.getEmojiIndex().appendNames(text, 0, text.length(), builder);
+	}
+	
+	@Override
+	public void appendTranslated(CharSequence text, StringBuilder builder, TranslationMode mode) {
+		appendTranslated(text, builder, mode, true);
+	}
+	
+	@Override
+	public void appendTranslated(CharSequence text, StringBuilder builder, TranslationMode mode, boolean shortcuts) {
+		table.appendTranslated(text, builder, mode, shortcuts, metrics.isEnabled() ? metrics : null);
 	}
 	
 	/**
@@ -242,10 +554,7 @@ public class EmojiHandler {
 	 * @return The message with correct emoji shortcuts.
 	 */
 	public String translateShorthand(String message) {
-		for (String key : plugin.getEmojiHandler().getShortcuts().keySet()) {
-			message = message.replace(key, plugin.getEmojiHandler().getShortcuts().get(key));
-		}
-		return message;
+		return table.translateShorthand(message);
 	}
 
 }
@@ -0,0 +1,166 @@
+package io.github.radbuilder.emojichat.utils;
+
+import org.bukkit.configuration.file.FileConfiguration;
+
+/**
+ * Immutable snapshot of the config values the EmojiChat listener reads on every event, so the event handlers don't
+ * go back to the YAML config each time. Rebuilt on every config (re)load.
+ *
+ * @author RadBuilder
+ * @version 1.8.1
+ * @since 1.8.1
+ */
+public final class ListenerConfig {
+	/**
+	 * If emojis should be displayed on signs.
+	 */
+	private final boolean emojisOnSigns;
+	/**
+	 * If commands should have emojis.
+	 */
+	private final boolean emojisInCommands;
+	/**
+	 * If emojis should ONLY work with commands in {@link #commandList}.
+	 */
+	private final boolean onlyCommandList;
+	/**
+	 * The commands where emojis are allowed if {@link #onlyCommandList} is true.
+	 */
+	private final CommandSet commandList;
+	/**
+	 * If EmojiChat should automatically download the ResourcePack for the player.
+	 */
+	private final boolean downloadResourcePack;
+	/**
+	 * How many players get the ResourcePack sent per tick.
+	 */
+	private final int resourcePackSendsPerTick;
+	/**
+	 * How many times a failed ResourcePack download is retried.
+	 */
+	private final int resourcePackRetries;
+	/**
+	 * How many ticks to wait before the first retry.
+	 */
+	private final int resourcePackRetryDelay;
+	/**
+	 * The maximum number of emoji names suggested per tab completion, 0 if emoji tab completion is off.
+	 */
+	private final int tabCompleteLimit;
+	/**
+	 * If the main thread handlers do less when the server falls behind.
+	 */
+	private final boolean loadShedding;
+	/**
+	 * The average tick time above which the handlers do less, in milliseconds.
+	 */
+	private final double loadSheddingTickMillis;
+	/**
+	 * The time per tick the handlers may take before they do less, in milliseconds.
+	 */
+	private final double loadSheddingHandlerMillis;
+	/**
+	 * How long the server has to be healthy before the handlers do more again, in seconds.
+	 */
+	private final int loadSheddingRecoverSeconds;
+	/**
+	 * The lowest degradation level the handlers go down to.
+	 */
+	private final DegradationLevel loadSheddingMaxLevel;
+	
+	/**
+	 * Compiles the listener config from the specified config.
+	 *
+	 * @param config The EmojiChat config.
+	 */
+	public ListenerConfig(FileConfiguration config) {
+		emojisOnSigns = config.getBoolean("emojis-on-signs");
+		emojisInCommands = config.getBoolean("emojis-in-commands");
+		onlyCommandList = config.getBoolean("only-command-list");
+		commandList = new CommandSet(config.getStringList("command-list"));
+		downloadResourcePack = config.getBoolean("download-resourcepack");
+		resourcePackSendsPerTick = Math.max(1, config.getInt("resourcepack-sends-per-tick", 5));
+		resourcePackRetries = Math.max(0, config.getInt("resourcepack-retries", 3));
+		resourcePackRetryDelay = Math.max(1, config.getInt("resourcepack-retry-delay", 100));
+		tabCompleteLimit = Math.max(0, config.getInt("tab-complete-limit", 20));
+		loadShedding = config.getBoolean("load-shedding.enabled", true);
+		loadSheddingTickMillis = Math.max(50.0, config.getDouble("load-shedding.tick-ms", 55.0));
+		loadSheddingHandlerMillis = Math.max(0.1, config.getDouble("load-shedding.handler-ms", 2.0));
+		loadSheddingRecoverSeconds = Math.max(1, config.getInt("load-shedding.recover-seconds", 30));
+		loadSheddingMaxLevel = DegradationLevel.fromConfig(config.getString("load-shedding.max-level"), DegradationLevel.NAMES_ONLY);
+	}
+	
+	/**
+	 * If emojis should be displayed on signs.
+	 *
+	 * @return True if emojis should be displayed on signs, false otherwise.
+	 */
+	public boolean emojisOnSigns() {
+		return emojisOnSigns;
+	}
+	
+	/**
+	 * Checks if emojis should be translated in the specified command line.
+	 *
+	 * @param commandLine The command line, i.e. /msg RadBuilder hi.
+	 * @return True if emojis are enabled in commands and allowed for this command, false otherwise.
+	 */
+	public boolean emojisInCommand(String commandLine) {
+		return emojisInCommands && (!onlyCommandList || commandList.containsCommandOf(commandLine));
+	}
+	
+	/**
+	 * If EmojiChat should automatically download the ResourcePack for the player.
+	 *
+	 * @return True if the ResourcePack should be downloaded automatically, false otherwise.
+	 */
+	public boolean downloadResourcePack() {
+		return downloadResourcePack;
+	}
+	
+	/**
+	 * Gets how many players get the ResourcePack sent per tick.
+	 *
+	 * @return The number of ResourcePack sends per tick.
+	 */
+	public int resourcePackSendsPerTick() {
+		return resourcePackSendsPerTick;
+	}
+	
+	/**
+	 * Gets how many times a failed ResourcePack download is retried.
+	 *
+	 * @return The number of retries.
+	 */
+	public int resourcePackRetries() {
+		return resourcePackRetries;
+	}
+	
+	/**
+	 * Gets how many ticks to wait before the first retry of a failed ResourcePack download. Every further retry waits
+	 * twice as long as the one before.
+	 *
+	 * @return The first retry delay, in ticks.
+	 */
+	public int resourcePackRetryDelay() {
+		return resourcePackRetryDelay;
+	}
+	
+	/**
+	 * Gets the maximum number of emoji names suggested per tab completion.
+	 *
+	 * @return The maximum number of suggestions, 0 if emoji tab completion is off.
+	 */
+	public int tabCompleteLimit() {
+		return tabCompleteLimit;
+	}
+	
+	/**
+	 * Applies the load shedding config to the specified load shedder.
+	 *
+	 * @param loadShedder The load shedder.
+	 */
+	public void configure(LoadShedder loadShedder) {
+		loadShedder.configure(loadShedding, loadSheddingTickMillis, loadSheddingHandlerMillis, loadSheddingRecoverSeconds, loadSheddingMaxLevel);
+	}
+}
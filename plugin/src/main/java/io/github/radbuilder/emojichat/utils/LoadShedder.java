@@ -0,0 +1,169 @@
+package io.github.radbuilder.emojichat.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Steps the main thread handlers down through the {@link DegradationLevel}s when the server falls behind, and back up
+ * once it recovered.
+ * <p>
+ * Runs on the main thread every tick and looks at one second windows: the average tick time, and how long the main
+ * thread spent in EmojiChat's handlers per tick. If either is over its limit, the level goes down one step per window.
+ * Once both stayed under their limits for the recovery time, it goes back up one step, and so on.
+ *
+ * @author RadBuilder
+ * @version 1.8.1
+ * @since 1.8.1
+ */
+public class LoadShedder implements Runnable {
+	/**
+	 * The number of ticks in a window.
+	 */
+	private static final int WINDOW_TICKS = 20;
+	
+	/**
+	 * The logger to report level changes to.
+	 */
+	private final Logger logger;
+	/**
+	 * The metrics to report level changes to.
+	 */
+	private final EmojiChatMetrics metrics;
+	/**
+	 * The time spent in the main thread handlers this window, in nanoseconds.
+	 */
+	private final LongAdder handlerNanos;
+	/**
+	 * The current level.
+	 */
+	private volatile DegradationLevel level;
+	/**
+	 * If the level is stepped down under load.
+	 */
+	private boolean enabled;
+	/**
+	 * The average tick time above which the level goes down, in nanoseconds.
+	 */
+	private long tickLimit;
+	/**
+	 * The handler time per tick above which the level goes down, in nanoseconds.
+	 */
+	private long handlerLimit;
+	/**
+	 * How many healthy windows in a row it takes to go back up a level.
+	 */
+	private int recoverWindows;
+	/**
+	 * The lowest level to go down to.
+	 */
+	private DegradationLevel maxLevel;
+	/**
+	 * The number of ticks in the current window.
+	 */
+	private int ticks;
+	/**
+	 * When the current window started, from {@link System#nanoTime()}, or 0 if it didn't start yet.
+	 */
+	private long windowStart;
+	/**
+	 * The number of healthy windows in a row.
+	 */
+	private int healthyWindows;
+	
+	/**
+	 * Creates the load shedder, disabled until {@link #configure(boolean, double, double, int, DegradationLevel)} is
+	 * called. Schedule it to run every tick.
+	 *
+	 * @param logger The logger to report level changes to.
+	 * @param metrics The metrics to report level changes to.
+	 */
+	public LoadShedder(Logger logger, EmojiChatMetrics metrics) {
+		this.logger = logger;
+		this.metrics = metrics;
+		handlerNanos = new LongAdder();
+		level = DegradationLevel.FULL;
+		maxLevel = DegradationLevel.FULL;
+	}
+	
+	/**
+	 * Applies the load shedding config. Only call this on the main thread.
+	 *
+	 * @param enabled If the level is stepped down under load.
+	 * @param tickMillis The average tick time above which the level goes down, in milliseconds.
+	 * @param handlerMillis The handler time per tick above which the level goes down, in milliseconds.
+	 * @param recoverSeconds How long the server has to be healthy before the level goes back up, in seconds.
+	 * @param maxLevel The lowest level to go down to.
+	 */
+	public void configure(boolean enabled, double tickMillis, double handlerMillis, int recoverSeconds, DegradationLevel maxLevel) {
+		this.enabled = enabled;
+		this.tickLimit = (long) (tickMillis * TimeUnit.MILLISECONDS.toNanos(1));
+		this.handlerLimit = (long) (handlerMillis * TimeUnit.MILLISECONDS.toNanos(1));
+		this.recoverWindows = Math.max(1, recoverSeconds * 20 / WINDOW_TICKS);
+		this.maxLevel = enabled ? maxLevel : DegradationLevel.FULL;
+		if (level.compareTo(this.maxLevel) > 0) {
+			setLevel(this.maxLevel, "the config changed");
+		}
+	}
+	
+	/**
+	 * Gets the current level.
+	 *
+	 * @return The current level.
+	 */
+	public DegradationLevel getLevel() {
+		return level;
+	}
+	
+	/**
+	 * Records time spent in a main thread handler.
+	 *
+	 * @param nanos The time spent, in nanoseconds.
+	 */
+	public void record(long nanos) {
+		handlerNanos.add(nanos);
+	}
+	
+	@Override
+	public void run() {
+		long now = System.nanoTime();
+		if (windowStart == 0) {
+			windowStart = now;
+			handlerNanos.reset();
+			return;
+		}
+		if (++ticks < WINDOW_TICKS) {
+			return;
+		}
+		
+		long tickNanos = (now - windowStart) / ticks;
+		long handlerPerTick = handlerNanos.sumThenReset() / ticks;
+		ticks = 0;
+		windowStart = now;
+		if (!enabled) {
+			return;
+		}
+		
+		if (tickNanos > tickLimit || handlerPerTick > handlerLimit) {
+			healthyWindows = 0;
+			if (level.compareTo(maxLevel) < 0) {
+				setLevel(level.next(), String.format("the server is falling behind (%.1f ms per tick, %.2f ms in EmojiChat)", tickNanos / 1e6, handlerPerTick / 1e6));
+			}
+		} else if (level != DegradationLevel.FULL && ++healthyWindows >= recoverWindows) {
+			healthyWindows = 0;
+			setLevel(level.previous(), "the server recovered");
+		}
+	}
+	
+	/**
+	 * Changes the level, logging and counting the change.
+	 *
+	 * @param level The new level.
+	 * @param reason Why the level changed.
+	 */
+	private void setLevel(DegradationLevel level, String reason) {
+		logger.info("Switching emoji translation from " + this.level + " to " + level + ", " + reason + ".");
+		this.level = level;
+		metrics.degradationLevelChanged(level);
+	}
+}
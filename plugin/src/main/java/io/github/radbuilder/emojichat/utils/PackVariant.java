@@ -0,0 +1,188 @@
+package io.github.radbuilder.emojichat.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.function.Function;
+import java.util.logging.Logger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * One variant of the ResourcePack bundled with EmojiChat, selected with {@code pack-variant} in the config. Variant 1
+ * is UKSRTemoji.zip, every other variant n is UKSRTemoji.n.zip, each with its SHA-1 in hash.n.txt.
+ * <p>
+ * Nothing is read until the variant is first used: then the pack's glyph pages are listed once, which is all that's
+ * needed to build its {@link GlyphTable} on top of the shared {@link EmojiIndex}. Variants that are never selected
+ * cost nothing.
+ *
+ * @author RadBuilder
+ * @version 1.8.1
+ * @since 1.8.1
+ */
+public final class PackVariant {
+	/**
+	 * The variant used if the config doesn't select one, and the fallback if the selected one isn't bundled.
+	 */
+	public static final int DEFAULT = 1;
+	/**
+	 * The start of the name of every glyph page in a pack, followed by the page in hex (i.e. 5a) and ".png".
+	 */
+	private static final String GLYPH_PAGE_PREFIX = "assets/minecraft/textures/font/unicode_page_";
+	
+	/**
+	 * The variant number.
+	 */
+	private final int id;
+	/**
+	 * Opens a resource bundled with EmojiChat by name, or returns null if it isn't bundled.
+	 */
+	private final Function<String, InputStream> resources;
+	/**
+	 * The logger to report unreadable packs to.
+	 */
+	private final Logger logger;
+	/**
+	 * If the pack was read yet.
+	 */
+	private boolean loaded;
+	/**
+	 * If the pack is bundled with EmojiChat.
+	 */
+	private boolean bundled;
+	/**
+	 * The pack's SHA-1 hash, or null if it isn't known.
+	 */
+	private byte[] sha1;
+	/**
+	 * The pack's glyph pages, by the high byte of the characters on them, or null if the pack couldn't be read.
+	 */
+	private BitSet pages;
+	/**
+	 * The glyphs of the last emoji index asked for, or null if none was asked for yet.
+	 */
+	private GlyphTable glyphs;
+	
+	/**
+	 * Creates a variant. Nothing is read until it's used.
+	 *
+	 * @param id The variant number.
+	 * @param resources Opens a resource bundled with EmojiChat by name, or returns null if it isn't bundled.
+	 * @param logger The logger to report unreadable packs to.
+	 */
+	public PackVariant(int id, Function<String, InputStream> resources, Logger logger) {
+		this.id = id;
+		this.resources = resources;
+		this.logger = logger;
+	}
+	
+	/**
+	 * Gets the variant number.
+	 *
+	 * @return The variant number.
+	 */
+	public int getId() {
+		return id;
+	}
+	
+	/**
+	 * Gets the name of the variant's pack zip.
+	 *
+	 * @return The name of the pack zip.
+	 */
+	public String getPackName() {
+		return id == DEFAULT ? "UKSRTemoji.zip" : "UKSRTemoji." + id + ".zip";
+	}
+	
+	/**
+	 * Gets the name of the file with the SHA-1 hash of the variant's pack.
+	 *
+	 * @return The name of the hash file.
+	 */
+	public String getHashName() {
+		return "hash." + id + ".txt";
+	}
+	
+	/**
+	 * Checks if the variant's pack is bundled with EmojiChat. Reads the pack the first time.
+	 *
+	 * @return True if the pack is bundled, false otherwise.
+	 */
+	public synchronized boolean isBundled() {
+		load();
+		return bundled;
+	}
+	
+	/**
+	 * Gets the SHA-1 hash of the variant's pack, computed when EmojiChat was built. Reads the pack the first time.
+	 *
+	 * @return The SHA-1 hash, or null if EmojiChat wasn't built with one (i.e. running from an IDE).
+	 */
+	public synchronized byte[] getSha1() {
+		load();
+		return sha1 != null ? sha1.clone() : null;
+	}
+	
+	/**
+	 * Gets the glyphs the variant's pack has for the specified emojis. Reads the pack the first time; the glyph table
+	 * is kept for as long as the same index is asked for.
+	 *
+	 * @param index The emoji index, shared by every variant.
+	 * @return The glyph table. Every emoji has a glyph if the pack isn't bundled, so the index is used as-is.
+	 */
+	public synchronized GlyphTable getGlyphs(EmojiIndex index) {
+		load();
+		if (glyphs == null || glyphs.getIndex() != index) {
+			glyphs = pages != null ? GlyphTable.forPages(index, pages) : GlyphTable.all(index);
+		}
+		return glyphs;
+	}
+	
+	/**
+	 * Lists the glyph pages of the variant's pack and reads its hash, if that wasn't done yet.
+	 */
+	private void load() {
+		if (loaded) {
+			return;
+		}
+		loaded = true;
+		
+		InputStream pack = resources.apply(getPackName());
+		if (pack == null) {
+			return;
+		}
+		try (ZipInputStream input = new ZipInputStream(pack)) {
+			BitSet pages = new BitSet(256);
+			ZipEntry entry;
+			while ((entry = input.getNextEntry()) != null) {
+				String name = entry.getName();
+				if (name.startsWith(GLYPH_PAGE_PREFIX) && name.endsWith(".png") && name.length() == GLYPH_PAGE_PREFIX.length() + 6) {
+					pages.set(Integer.parseInt(name.substring(GLYPH_PAGE_PREFIX.length(), GLYPH_PAGE_PREFIX.length() + 2), 16));
+				}
+			}
+			this.pages = pages;
+			bundled = true;
+		} catch (IOException | NumberFormatException e) {
+			logger.warning("Couldn't read the bundled ResourcePack " + getPackName() + ": " + e.getMessage());
+			return;
+		}
+		
+		InputStream hash = resources.apply(getHashName());
+		if (hash == null) {
+			return;
+		}
+		try (InputStream input = hash) {
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			byte[] buffer = new byte[128];
+			int read;
+			while ((read = input.read(buffer)) >= 0) {
+				output.write(buffer, 0, read);
+			}
+			sha1 = ResourcePackServer.fromHex(new String(output.toByteArray(), StandardCharsets.US_ASCII).trim());
+		} catch (IOException e) {
+			logger.warning("Couldn't read " + getHashName() + ": " + e.getMessage());
+		}
+	}
+}
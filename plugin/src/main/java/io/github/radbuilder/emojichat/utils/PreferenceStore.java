@@ -0,0 +1,234 @@
+package io.github.radbuilder.emojichat.utils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the per-player preferences (i.e. the shortcut toggle) in an append-only log in the plugin folder, so they
+ * survive reloads and restarts.
+ * <p>
+ * Every change is one {@code <uuid> <preferences>} line, and the last line of a player wins. Changes only update the
+ * in-memory map and queue the line; {@link #flush()} writes the queued lines in one batch, so the main thread never
+ * waits on the disk. Once the log holds a lot more lines than players, it's compacted to one line per player and
+ * swapped in atomically. A torn last line (i.e. after a crash) is skipped when loading.
+ *
+ * @author RadBuilder
+ * @version 1.8.1
+ * @since 1.8.1
+ */
+public class PreferenceStore {
+	/**
+	 * The number of log lines below which the log is never compacted.
+	 */
+	private static final int COMPACT_MIN_RECORDS = 256;
+	
+	/**
+	 * The log file.
+	 */
+	private final Path file;
+	/**
+	 * The logger to report problems to.
+	 */
+	private final Logger logger;
+	/**
+	 * The preferences of the players who changed them, by UUID. Players with default preferences aren't in the map.
+	 */
+	private final ConcurrentHashMap<UUID, Integer> values;
+	/**
+	 * The changes that weren't written to the log yet, in order, by UUID. Guarded by itself.
+	 */
+	private final LinkedHashMap<UUID, Integer> pending;
+	/**
+	 * The players whose preferences changed before the log was read, so the log doesn't bring back what they changed,
+	 * resets to the default included. Guarded by {@link #pending}.
+	 */
+	private final HashSet<UUID> changedBeforeLoad;
+	/**
+	 * If the log was read.
+	 */
+	private volatile boolean loaded;
+	/**
+	 * The number of lines in the log. Guarded by this store.
+	 */
+	private int records;
+	
+	/**
+	 * Creates the preference store. Nothing is read until {@link #load()} is called.
+	 *
+	 * @param file The log file.
+	 * @param logger The logger to report problems to.
+	 */
+	public PreferenceStore(Path file, Logger logger) {
+		this.file = file;
+		this.logger = logger;
+		values = new ConcurrentHashMap<>();
+		pending = new LinkedHashMap<>();
+		changedBeforeLoad = new HashSet<>();
+	}
+	
+	/**
+	 * Reads the log, if it wasn't read yet. Changes made before the log was read are kept, since they're newer, even if
+	 * the change was a reset to the default. Blocks on the disk, so don't call this on the main thread.
+	 */
+	public synchronized void load() {
+		if (loaded) {
+			return;
+		}
+		
+		HashMap<UUID, Integer> read = new HashMap<>();
+		boolean skipped = false;
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				int space = line.indexOf(' ');
+				try {
+					read.put(UUID.fromString(line.substring(0, space)), Integer.parseInt(line.substring(space + 1)));
+					records++;
+				} catch (IllegalArgumentException | IndexOutOfBoundsException e) { // Torn or edited line, skip it
+					skipped = true;
+				}
+			}
+		} catch (NoSuchFileException e) { // Nobody changed their preferences yet
+		} catch (IOException e) {
+			logger.log(Level.WARNING, "Couldn't read the player preferences from " + file.getFileName(), e);
+		}
+		synchronized (pending) { // No change can slip in between the merge and loaded being set
+			for (Map.Entry<UUID, Integer> entry : read.entrySet()) {
+				if (entry.getValue() != 0 && !changedBeforeLoad.contains(entry.getKey())) {
+					values.put(entry.getKey(), entry.getValue());
+				}
+			}
+			changedBeforeLoad.clear();
+			loaded = true;
+		}
+		
+		if (skipped || needsCompaction()) { // Rewrite a torn log, so the next line isn't appended to the torn one
+			compact();
+		}
+	}
+	
+	/**
+	 * Gets the preferences of the specified player. Never blocks, players are reported with default preferences until
+	 * the log was read.
+	 *
+	 * @param uuid The player's UUID.
+	 * @return The player's preferences, or 0 if they're the default.
+	 */
+	public int get(UUID uuid) {
+		Integer preferences = values.get(uuid);
+		return preferences != null ? preferences : 0;
+	}
+	
+	/**
+	 * Changes the preferences of the specified player, and queues the change for the next {@link #flush()}. Never
+	 * blocks on the disk.
+	 *
+	 * @param uuid The player's UUID.
+	 * @param preferences The player's new preferences, or 0 for the default.
+	 */
+	public void set(UUID uuid, int preferences) {
+		boolean beforeLoad = false;
+		if (!loaded) {
+			synchronized (pending) { // Remember the change, a reset leaves nothing in the values to keep the log from bringing it back
+				if (!loaded) {
+					changedBeforeLoad.add(uuid);
+					beforeLoad = true;
+				}
+			}
+		}
+		Integer old = preferences != 0 ? values.put(uuid, preferences) : values.remove(uuid);
+		if (!beforeLoad && (old != null ? old : 0) == preferences) { // Nothing changed (before the log was read, the log might disagree)
+			return;
+		}
+		synchronized (pending) {
+			pending.remove(uuid); // Re-insert, so the queue stays in change order
+			pending.put(uuid, preferences);
+		}
+	}
+	
+	/**
+	 * Appends the queued changes to the log in one write, and compacts the log if it grew too long. Blocks on the disk,
+	 * so don't call this on the main thread.
+	 */
+	public synchronized void flush() {
+		LinkedHashMap<UUID, Integer> batch;
+		synchronized (pending) {
+			if (pending.isEmpty()) {
+				return;
+			}
+			batch = new LinkedHashMap<>(pending);
+			pending.clear();
+		}
+		
+		try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+			for (Map.Entry<UUID, Integer> entry : batch.entrySet()) {
+				writer.write(entry.getKey() + " " + entry.getValue());
+				writer.newLine();
+			}
+			records += batch.size();
+		} catch (IOException e) {
+			logger.log(Level.WARNING, "Couldn't save the player preferences to " + file.getFileName(), e);
+			synchronized (pending) { // Try again next time, unless the player changed them again since
+				for (Map.Entry<UUID, Integer> entry : batch.entrySet()) {
+					pending.putIfAbsent(entry.getKey(), entry.getValue());
+				}
+			}
+			return;
+		}
+		
+		if (loaded && needsCompaction()) {
+			compact();
+		}
+	}
+	
+	/**
+	 * Checks if the log holds a lot more lines than players with changed preferences.
+	 *
+	 * @return True if the log should be compacted, false otherwise.
+	 */
+	private boolean needsCompaction() {
+		return records > COMPACT_MIN_RECORDS && records > values.size() * 2;
+	}
+	
+	/**
+	 * Rewrites the log with one line per player with changed preferences, and swaps it in atomically. Changes queued
+	 * meanwhile are already in the new log, appending them again later is harmless.
+	 */
+	private void compact() {
+		Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+		int written = 0;
+		try {
+			try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+				for (Map.Entry<UUID, Integer> entry : values.entrySet()) {
+					writer.write(entry.getKey() + " " + entry.getValue());
+					writer.newLine();
+					written++;
+				}
+			}
+			try {
+				Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+			}
+			records = written;
+		} catch (IOException e) { // Keep appending to the old log
+			logger.log(Level.WARNING, "Couldn't compact the player preferences in " + file.getFileName(), e);
+		}
+	}
+}
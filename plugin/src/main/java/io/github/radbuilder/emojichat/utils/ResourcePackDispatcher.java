@@ -0,0 +1,180 @@
+package io.github.radbuilder.emojichat.utils;
+
+import io.github.radbuilder.emojichat.EmojiChat;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.player.PlayerResourcePackStatusEvent;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.UUID;
+
+/**
+ * Queues ResourcePack sends and works them off a few players per tick, so a join storm (i.e. after a restart) doesn't
+ * have every player download the pack in the same tick.
+ * <p>
+ * Players who already loaded the current pack this session are skipped, and failed downloads are retried with a
+ * doubling delay. Runs on the main thread every tick.
+ *
+ * @author RadBuilder
+ * @version 1.8.1
+ * @since 1.8.1
+ */
+public class ResourcePackDispatcher implements Runnable {
+	/**
+	 * EmojiChat main class instance.
+	 */
+	private final EmojiChat plugin;
+	/**
+	 * The queued sends by player UUID, in the order they were queued.
+	 */
+	private final LinkedHashMap<UUID, Send> queue;
+	/**
+	 * The current tick, counted from when the dispatcher started.
+	 */
+	private long tick;
+	
+	/**
+	 * Creates the ResourcePack dispatcher. Schedule it to run every tick.
+	 *
+	 * @param plugin The EmojiChat main class instance.
+	 */
+	public ResourcePackDispatcher(EmojiChat plugin) {
+		this.plugin = plugin;
+		queue = new LinkedHashMap<>();
+	}
+	
+	/**
+	 * Queues the ResourcePack for the specified player.
+	 *
+	 * @param player The player to send the ResourcePack to.
+	 * @param delay How many ticks to wait at least before sending.
+	 * @param force True to send the pack even if the player already loaded it (i.e. /emojichat resourcepack).
+	 */
+	public void queue(Player player, long delay, boolean force) {
+		queue(player.getUniqueId(), delay, force, false);
+	}
+	
+	/**
+	 * Queues the ResourcePack for the specified player, merging with a send that's already queued.
+	 *
+	 * @param uuid The player's UUID.
+	 * @param delay How many ticks to wait at least before sending.
+	 * @param force True to send the pack even if the player already loaded it.
+	 * @param retry If this is a retry after a failed download.
+	 */
+	private void queue(UUID uuid, long delay, boolean force, boolean retry) {
+		Send send = queue.get(uuid);
+		if (send == null) {
+			queue.put(uuid, new Send(tick + delay, force, retry));
+		} else {
+			send.due = Math.min(send.due, tick + delay);
+			send.force |= force;
+			send.retry &= retry;
+		}
+	}
+	
+	/**
+	 * Forgets the queued send for the specified player, i.e. when they quit.
+	 *
+	 * @param player The player.
+	 */
+	public void cancel(Player player) {
+		queue.remove(player.getUniqueId());
+	}
+	
+	/**
+	 * Gets how many sends are queued.
+	 *
+	 * @return The number of queued sends.
+	 */
+	public int getQueued() {
+		return queue.size();
+	}
+	
+	/**
+	 * Records a ResourcePack status the client reported, and retries the download if it failed.
+	 *
+	 * @param player The player.
+	 * @param status The reported status.
+	 */
+	public void handleStatus(Player player, PlayerResourcePackStatusEvent.Status status) {
+		EmojiChatProfile profile = plugin.getEmojiHandler().getProfile(player);
+		ListenerConfig config = plugin.getListenerConfig();
+		switch (status) {
+			case SUCCESSFULLY_LOADED:
+				profile.packLoaded();
+				break;
+			case FAILED_DOWNLOAD:
+				int attempts = profile.getPackAttempts();
+				if (attempts > 0 && attempts <= config.resourcePackRetries()) {
+					queue(player.getUniqueId(), (long) config.resourcePackRetryDelay() << (attempts - 1), false, true); // Wait twice as long every retry
+				}
+				break;
+			default: // Accepted, or declined by the player (which we respect)
+				break;
+		}
+	}
+	
+	@Override
+	public void run() {
+		tick++;
+		if (queue.isEmpty())
+			return;
+		
+		int budget = plugin.getListenerConfig().resourcePackSendsPerTick();
+		String pack = plugin.getResourcePackId();
+		Iterator<UUID> iterator = queue.keySet().iterator();
+		while (budget > 0 && iterator.hasNext()) {
+			UUID uuid = iterator.next();
+			Send send = queue.get(uuid);
+			if (send.due > tick) // Not yet
+				continue;
+			iterator.remove();
+			
+			Player player = Bukkit.getPlayer(uuid);
+			if (player == null || !player.isOnline()) // Left before their turn
+				continue;
+			EmojiChatProfile profile = plugin.getEmojiHandler().getProfile(player);
+			if (!profile.can(EmojiChatProfile.SEE)) // Can't see emojis, so there's no point in the pack
+				continue;
+			if (!send.force && pack.equals(profile.getLoadedPack())) // Already loaded this pack this session
+				continue;
+			
+			profile.packSent(pack, send.retry);
+			plugin.sendResourcePack(player);
+			budget--;
+		}
+	}
+	
+	/**
+	 * A queued ResourcePack send.
+	 */
+	private static final class Send {
+		/**
+		 * The tick the send is due.
+		 */
+		private long due;
+		/**
+		 * If the pack should be sent even if the player already loaded it.
+		 */
+		private boolean force;
+		/**
+		 * If this is a retry after a failed download.
+		 */
+		private boolean retry;
+		
+		/**
+		 * Creates a queued send.
+		 *
+		 * @param due The tick the send is due.
+		 * @param force If the pack should be sent even if the player already loaded it.
+		 * @param retry If this is a retry after a failed download.
+		 */
+		private Send(long due, boolean force, boolean retry) {
+			this.due = due;
+			this.force = force;
+			this.retry = retry;
+		}
+	}
+}
@@ -0,0 +1,553 @@
+package io.github.radbuilder.emojichat.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Minimal built-in HTTP server that serves the EmojiChat ResourcePack, so players don't depend on a third-party host.
+ * <p>
+ * The pack file is opened once and sent straight from the file to the client sockets with
+ * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}, without copying it onto the heap. Responses carry the pack's SHA-1 as the ETag and support {@code If-None-Match} and single byte ranges.
+ * At most {@code maxConnections} downloads are served at once; clients over the limit get a 503. Responses are written
+ * without blocking, so clients that stop reading are dropped instead of holding a worker forever.
+ *
+ * @author RadBuilder
+ * @version 1.8.1
+ * @since 1.8.1
+ */
+public class ResourcePackServer {
+	/**
+	 * How long a client gets to send its request, in milliseconds.
+	 */
+	private static final int REQUEST_TIMEOUT = 10000;
+	/**
+	 * How long a client can go without taking any of the response before it's dropped, in milliseconds.
+	 */
+	private static final int WRITE_TIMEOUT = 10000;
+	/**
+	 * How long a whole response can take before the client is dropped, in milliseconds, so a client that keeps taking
+	 * a few bytes at a time can't hold a worker forever.
+	 */
+	private static final int RESPONSE_TIMEOUT = 300000;
+	/**
+	 * The longest request head that's accepted, in bytes.
+	 */
+	private static final int MAX_REQUEST_SIZE = 8192;
+	
+	/**
+	 * The address to listen on.
+	 */
+	private final InetSocketAddress address;
+	/**
+	 * The ResourcePack file.
+	 */
+	private final File packFile;
+	/**
+	 * The path the pack is served at, i.e. /UKSRTemoji.zip.
+	 */
+	private final String path;
+	/**
+	 * The maximum number of requests served at once.
+	 */
+	private final int maxConnections;
+	/**
+	 * The logger to report problems to.
+	 */
+	private final Logger logger;
+	
+	/**
+	 * The open pack file, closed when the server stops.
+	 */
+	private FileChannel pack;
+	/**
+	 * The pack length, in bytes.
+	 */
+	private long length;
+	/**
+	 * The pack's SHA-1 hash.
+	 */
+	private byte[] sha1;
+	/**
+	 * The pack's ETag, the quoted hex SHA-1.
+	 */
+	private String etag;
+	/**
+	 * The listening socket.
+	 */
+	private ServerSocketChannel serverChannel;
+	/**
+	 * The request workers.
+	 */
+	private ThreadPoolExecutor workers;
+	
+	/**
+	 * Creates the ResourcePack server. Nothing happens until {@link #prepare()} or {@link #start()} is called.
+	 *
+	 * @param address The address to listen on.
+	 * @param packFile The ResourcePack file.
+	 * @param sha1 The pack's SHA-1 hash if it's already known (i.e. the hash embedded at build time), or null to hash
+	 * the pack when it's prepared.
+	 * @param maxConnections The maximum number of requests served at once.
+	 * @param logger The logger to report problems to.
+	 */
+	public ResourcePackServer(InetSocketAddress address, File packFile, byte[] sha1, int maxConnections, Logger logger) {
+		this.address = address;
+		this.packFile = packFile;
+		this.sha1 = sha1 == null ? null : sha1.clone();
+		this.path = "/" + packFile.getName();
+		this.maxConnections = Math.max(1, maxConnections);
+		this.logger = logger;
+	}
+	
+	/**
+	 * Opens the pack and hashes it, if the hash isn't known yet. Doesn't listen yet, so it can be called off the main
+	 * thread before {@link #start()}. Call {@link #stop()} to close the pack if the server isn't started after all.
+	 *
+	 * @throws IOException If the pack can't be read.
+	 */
+	public void prepare() throws IOException {
+		FileChannel channel = FileChannel.open(packFile.toPath(), StandardOpenOption.READ); // Keeps serving the old file if it's replaced
+		try {
+			length = channel.size();
+			if (sha1 == null) {
+				sha1 = sha1(channel, length);
+			}
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		pack = channel;
+		etag = "\"" + toHex(sha1) + "\"";
+	}
+	
+	/**
+	 * Starts listening, after {@link #prepare() preparing} the pack if that wasn't done yet.
+	 *
+	 * @throws IOException If the pack can't be read or the address can't be bound.
+	 */
+	public void start() throws IOException {
+		if (pack == null) {
+			prepare();
+		}
+		
+		serverChannel = ServerSocketChannel.open();
+		serverChannel.bind(address);
+		workers = new ThreadPoolExecutor(maxConnections, maxConnections, 30, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+			Thread thread = new Thread(runnable, "EmojiChat ResourcePack Server Worker");
+			thread.setDaemon(true);
+			return thread;
+		});
+		workers.allowCoreThreadTimeOut(true);
+		
+		Thread acceptor = new Thread(this::acceptLoop, "EmojiChat ResourcePack Server");
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+	
+	/**
+	 * Stops listening, drops the requests in progress and closes the pack.
+	 */
+	public void stop() {
+		try {
+			if (serverChannel != null) {
+				serverChannel.close();
+			}
+		} catch (IOException ignored) {
+		}
+		if (workers != null) {
+			workers.shutdownNow();
+		}
+		try {
+			if (pack != null) {
+				pack.close();
+			}
+		} catch (IOException ignored) {
+		}
+	}
+	
+	/**
+	 * Gets the pack's SHA-1 hash.
+	 *
+	 * @return The pack's SHA-1 hash.
+	 */
+	public byte[] getSha1() {
+		return sha1.clone();
+	}
+	
+	/**
+	 * Gets the address the server listens on.
+	 *
+	 * @return The address.
+	 */
+	public InetSocketAddress getAddress() {
+		return address;
+	}
+	
+	/**
+	 * Gets the path the pack is served at.
+	 *
+	 * @return The path, i.e. /UKSRTemoji.zip.
+	 */
+	public String getPath() {
+		return path;
+	}
+	
+	/**
+	 * Accepts connections and hands them to the workers until the server is stopped.
+	 */
+	private void acceptLoop() {
+		while (serverChannel.isOpen()) {
+			SocketChannel client;
+			try {
+				client = serverChannel.accept();
+			} catch (ClosedChannelException e) {
+				return; // Stopped
+			} catch (IOException e) {
+				logger.log(Level.WARNING, "ResourcePack server failed to accept a connection", e);
+				continue;
+			}
+			
+			try {
+				workers.execute(() -> handle(client));
+			} catch (RejectedExecutionException e) { // Too many downloads at once
+				try {
+					writeHead(client, "503 Service Unavailable", 0, "Retry-After: 5\r\n", System.currentTimeMillis() + WRITE_TIMEOUT);
+				} catch (IOException ignored) {
+				}
+				close(client);
+			}
+		}
+	}
+	
+	/**
+	 * Handles a single request, then closes the connection.
+	 *
+	 * @param client The client connection.
+	 */
+	private void handle(SocketChannel client) {
+		try {
+			client.socket().setSoTimeout(REQUEST_TIMEOUT);
+			client.socket().setTcpNoDelay(true);
+			String[] request = readRequest(client.socket().getInputStream());
+			long deadline = System.currentTimeMillis() + RESPONSE_TIMEOUT;
+			if (request == null) {
+				writeHead(client, "400 Bad Request", 0, "", deadline);
+				return;
+			}
+			
+			String[] requestLine = request[0].split(" ");
+			if (requestLine.length != 3) {
+				writeHead(client, "400 Bad Request", 0, "", deadline);
+				return;
+			}
+			boolean head = requestLine[0].equals("HEAD");
+			if (!head && !requestLine[0].equals("GET")) {
+				writeHead(client, "405 Method Not Allowed", 0, "Allow: GET, HEAD\r\n", deadline);
+				return;
+			}
+			String target = requestLine[1];
+			int query = target.indexOf('?');
+			if (!(query < 0 ? target : target.substring(0, query)).equals(path)) {
+				writeHead(client, "404 Not Found", 0, "", deadline);
+				return;
+			}
+			
+			String ifNoneMatch = header(request, "if-none-match");
+			if (ifNoneMatch != null && (ifNoneMatch.equals("*") || ifNoneMatch.contains(etag))) {
+				writeHead(client, "304 Not Modified", -1, "ETag: " + etag + "\r\n", deadline);
+				return;
+			}
+			
+			long start = 0;
+			long end = length; // Exclusive
+			String status = "200 OK";
+			String range = header(request, "range");
+			String ifRange = header(request, "if-range");
+			if (range != null && (ifRange == null || ifRange.equals(etag))) {
+				long[] bounds = parseRange(range, length);
+				if (bounds == null) {
+					writeHead(client, "416 Range Not Satisfiable", 0, "Content-Range: bytes */" + length + "\r\n", deadline);
+					return;
+				}
+				if (bounds.length == 2) {
+					start = bounds[0];
+					end = bounds[1];
+					status = "206 Partial Content";
+				}
+			}
+			
+			String headers = "Content-Type: application/zip\r\n" + "ETag: " + etag + "\r\n" + "Accept-Ranges: bytes\r\n"
+					+ (end - start != length ? "Content-Range: bytes " + start + "-" + (end - 1) + "/" + length + "\r\n" : "");
+			writeHead(client, status, end - start, headers, deadline);
+			if (!head) {
+				transfer(client, pack, start, end, deadline);
+			}
+		} catch (SocketTimeoutException | ClosedChannelException ignored) { // Slow or disconnected client, or stopping
+		} catch (IOException e) {
+			logger.log(Level.FINE, "ResourcePack download failed", e);
+		} finally {
+			close(client);
+		}
+	}
+	
+	/**
+	 * Reads the request head.
+	 *
+	 * @param input The client input.
+	 * @return The request line followed by the header lines, or null if the request is malformed or too big.
+	 * @throws IOException If the request can't be read.
+	 */
+	private String[] readRequest(InputStream input) throws IOException {
+		ByteArrayOutputStream head = new ByteArrayOutputStream(512);
+		int matched = 0; // How much of \r\n\r\n has been seen
+		while (matched < 4) {
+			int b = input.read();
+			if (b < 0 || head.size() >= MAX_REQUEST_SIZE) {
+				return null;
+			}
+			head.write(b);
+			matched = (b == '\r' && (matched == 0 || matched == 2)) || (b == '\n' && (matched == 1 || matched == 3)) ? matched + 1 : (b == '\r' ? 1 : 0);
+		}
+		return new String(head.toByteArray(), StandardCharsets.ISO_8859_1).trim().split("\r\n");
+	}
+	
+	/**
+	 * Finds a request header.
+	 *
+	 * @param request The request line followed by the header lines.
+	 * @param name The lower-case header name.
+	 * @return The header value, or null if the header isn't there.
+	 */
+	private static String header(String[] request, String name) {
+		for (int i = 1; i < request.length; i++) {
+			int colon = request[i].indexOf(':');
+			if (colon > 0 && request[i].substring(0, colon).trim().toLowerCase(Locale.ROOT).equals(name)) {
+				return request[i].substring(colon + 1).trim();
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Parses a Range header. Only a single byte range is supported; anything else is answered with the whole pack.
+	 *
+	 * @param range The Range header value, i.e. bytes=0-1023.
+	 * @param length The pack length.
+	 * @return The start (inclusive) and end (exclusive) of the range, an empty array to send the whole pack, or null if
+	 * the range can't be satisfied.
+	 */
+	static long[] parseRange(String range, long length) {
+		if (!range.startsWith("bytes=") || range.indexOf(',') >= 0) {
+			return new long[0];
+		}
+		String spec = range.substring(6).trim();
+		int dash = spec.indexOf('-');
+		if (dash < 0) {
+			return new long[0];
+		}
+		
+		try {
+			long start;
+			long end;
+			if (dash == 0) { // Suffix range: the last n bytes
+				long suffix = Long.parseLong(spec.substring(1));
+				if (suffix <= 0) {
+					return null;
+				}
+				start = Math.max(0, length - suffix);
+				end = length;
+			} else {
+				start = Long.parseLong(spec.substring(0, dash));
+				end = dash == spec.length() - 1 ? length : Math.min(length, Long.parseLong(spec.substring(dash + 1)) + 1);
+			}
+			return start < length && start < end ? new long[]{start, end} : null;
+		} catch (NumberFormatException e) {
+			return new long[0];
+		}
+	}
+	
+	/**
+	 * Writes a response head.
+	 *
+	 * @param client The client connection.
+	 * @param status The status line, i.e. 200 OK.
+	 * @param contentLength The body length, or -1 to leave it out.
+	 * @param headers Extra header lines, each ending with \r\n.
+	 * @param deadline When the client is dropped if the head isn't written yet, in {@link System#currentTimeMillis()}.
+	 * @throws IOException If the head can't be written in time.
+	 */
+	private static void writeHead(SocketChannel client, String status, long contentLength, String headers, long deadline) throws IOException {
+		String head = "HTTP/1.1 " + status + "\r\n" + "Server: EmojiChat\r\n" + "Connection: close\r\n"
+				+ (contentLength >= 0 ? "Content-Length: " + contentLength + "\r\n" : "") + headers + "\r\n";
+		write(client, ByteBuffer.wrap(head.getBytes(StandardCharsets.ISO_8859_1)), deadline);
+	}
+	
+	/**
+	 * Writes the specified buffer's remaining bytes without blocking, waiting for the client to take more whenever its
+	 * socket buffer is full.
+	 *
+	 * @param client The client connection.
+	 * @param buffer The bytes to write.
+	 * @param deadline When the client is dropped if the bytes aren't written yet, in {@link System#currentTimeMillis()}.
+	 * @throws SocketTimeoutException If the client took nothing for {@link #WRITE_TIMEOUT} or the deadline passed.
+	 * @throws IOException If the bytes can't be written.
+	 */
+	private static void write(SocketChannel client, ByteBuffer buffer, long deadline) throws IOException {
+		if (client.isBlocking()) {
+			client.configureBlocking(false);
+		}
+		client.write(buffer);
+		if (!buffer.hasRemaining()) { // Fit in the socket buffer, the usual case for heads
+			return;
+		}
+		
+		try (Selector selector = Selector.open()) {
+			client.register(selector, SelectionKey.OP_WRITE);
+			while (buffer.hasRemaining()) {
+				awaitWritable(selector, deadline);
+				client.write(buffer);
+			}
+		}
+	}
+	
+	/**
+	 * Sends part of the specified file without blocking, straight from the file to the socket, waiting for the client
+	 * to take more whenever its socket buffer is full.
+	 *
+	 * @param client The client connection, already non-blocking.
+	 * @param file The file to send.
+	 * @param from The start of the part to send, inclusive.
+	 * @param to The end of the part to send, exclusive.
+	 * @param deadline When the client is dropped if the part isn't sent yet, in {@link System#currentTimeMillis()}.
+	 * @throws SocketTimeoutException If the client took nothing for {@link #WRITE_TIMEOUT} or the deadline passed.
+	 * @throws IOException If the part can't be sent.
+	 */
+	private static void transfer(SocketChannel client, FileChannel file, long from, long to, long deadline) throws IOException {
+		long position = from + file.transferTo(from, to - from, client);
+		if (position >= to) {
+			return;
+		}
+		
+		try (Selector selector = Selector.open()) {
+			client.register(selector, SelectionKey.OP_WRITE);
+			while (position < to) {
+				awaitWritable(selector, deadline);
+				position += file.transferTo(position, to - position, client);
+			}
+		}
+	}
+	
+	/**
+	 * Waits until the client can take more of the response.
+	 *
+	 * @param selector The selector the client is registered with for writing.
+	 * @param deadline When the client is dropped, in {@link System#currentTimeMillis()}.
+	 * @throws SocketTimeoutException If the client took nothing for {@link #WRITE_TIMEOUT} or the deadline passed.
+	 * @throws IOException If waiting fails.
+	 */
+	private static void awaitWritable(Selector selector, long deadline) throws IOException {
+		long remaining = deadline - System.currentTimeMillis();
+		if (remaining <= 0 || selector.select(Math.min(remaining, WRITE_TIMEOUT)) == 0) { // Also woken up when stopping
+			throw new SocketTimeoutException("The client stopped taking the response");
+		}
+		selector.selectedKeys().clear();
+	}
+	
+	/**
+	 * Closes a client connection, ignoring errors.
+	 *
+	 * @param client The client connection.
+	 */
+	private static void close(SocketChannel client) {
+		try {
+			client.close();
+		} catch (IOException ignored) {
+		}
+	}
+	
+	/**
+	 * Computes the SHA-1 hash of the start of the specified file.
+	 *
+	 * @param file The file to hash.
+	 * @param length The number of bytes to hash.
+	 * @return The SHA-1 hash.
+	 * @throws IOException If the file can't be read.
+	 */
+	static byte[] sha1(FileChannel file, long length) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-1 isn't available", e); // Every JVM has to support SHA-1
+		}
+		byte[] buffer = new byte[65536];
+		long position = 0;
+		while (position < length) {
+			int read = file.read(ByteBuffer.wrap(buffer, 0, (int) Math.min(buffer.length, length - position)), position);
+			if (read < 0) {
+				throw new IOException("The pack got shorter while it was hashed");
+			}
+			digest.update(buffer, 0, read);
+			position += read;
+		}
+		return digest.digest();
+	}
+	
+	/**
+	 * Parses a lower-case or upper-case hex string.
+	 *
+	 * @param hex The hex string.
+	 * @return The parsed bytes, or null if the string isn't valid hex.
+	 */
+	public static byte[] fromHex(String hex) {
+		if (hex.length() % 2 != 0) {
+			return null;
+		}
+		byte[] bytes = new byte[hex.length() / 2];
+		for (int i = 0; i < bytes.length; i++) {
+			int high = Character.digit(hex.charAt(i * 2), 16);
+			int low = Character.digit(hex.charAt(i * 2 + 1), 16);
+			if (high < 0 || low < 0) {
+				return null;
+			}
+			bytes[i] = (byte) (high << 4 | low);
+		}
+		return bytes;
+	}
+	
+	/**
+	 * Formats the specified bytes as lower-case hex.
+	 *
+	 * @param bytes The bytes to format.
+	 * @return The hex string.
+	 */
+	public static String toHex(byte[] bytes) {
+		StringBuilder builder = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return builder.toString();
+	}
+}
@@ -0,0 +1,217 @@
+package io.github.radbuilder.emojichat.tools;
+
+import java.io.BufferedReader;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compiles the emoji list (list.txt) and the Unicode emoji list (unicode.txt) into the binary emoji index the plugin
+ * loads at startup, and checks that every emoji character lands on a glyph page the resource pack actually has.
+ * <p>
+ * Usage: {@code EmojiIndexCompiler <list.txt> <unicode.txt> <font directory> <output file>}
+ * <p>
+ * Index format (big endian): the magic number {@code 0x454D4A49} ("EMJI"), the format version (short), the first emoji
+ * character (char), the number of emojis (int), then every emoji name in list order (modified UTF-8). Emoji {@code i}
+ * is the character {@code first + i}. Then the number of Unicode emoji sequences (int), and for every sequence the
+ * emoji's position in the list (unsigned short), the number of code points (unsigned byte) and the code points (int).
+ * This must stay in sync with {@code EmojiIndex} in the core module.
+ *
+ * @author RadBuilder
+ * @version 1.8.1
+ * @since 1.8.1
+ */
+public class EmojiIndexCompiler {
+	/**
+	 * The index magic number, "EMJI".
+	 */
+	static final int MAGIC = 0x454D4A49;
+	/**
+	 * The index format version.
+	 */
+	static final short VERSION = 2;
+	/**
+	 * The character the first emoji is assigned.
+	 */
+	static final char FIRST_EMOJI = '娀';
+	
+	public static void main(String[] args) throws IOException {
+		if (args.length != 4) {
+			throw new IllegalArgumentException("Usage: EmojiIndexCompiler <list.txt> <unicode.txt> <font directory> <output file>");
+		}
+		
+		List<String> names = readList(new File(args[0]));
+		List<int[]> unicode = new ArrayList<>();
+		List<Integer> unicodeEmojis = new ArrayList<>();
+		readUnicode(new File(args[1]), names, unicode, unicodeEmojis);
+		validatePages(names.size(), new File(args[2]));
+		writeIndex(names, unicode, unicodeEmojis, new File(args[3]));
+		System.out.println("[EmojiChat] Compiled " + names.size() + " emojis (" + toHex(FIRST_EMOJI) + "-" + toHex((char) (FIRST_EMOJI + names.size() - 1)) + ") and " + unicode.size() + " Unicode emojis into " + args[3]);
+	}
+	
+	/**
+	 * Reads and validates the emoji names from the emoji list.
+	 *
+	 * @param listFile The emoji list.
+	 * @return The emoji names, in list order.
+	 * @throws IOException If the emoji list can't be read.
+	 */
+	static List<String> readList(File listFile) throws IOException {
+		List<String> names = new ArrayList<>();
+		Set<String> seen = new HashSet<>();
+		
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(listFile), StandardCharsets.UTF_8))) {
+			String line;
+			int lineNumber = 0;
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				if (line.startsWith("#")) { // Ignored lines
+					continue;
+				}
+				if (line.length() < 3 || line.charAt(0) != ':' || line.charAt(line.length() - 1) != ':' || line.indexOf(':', 1) != line.length() - 1) {
+					throw new IllegalStateException(listFile + ":" + lineNumber + ": '" + line + "' isn't a valid emoji name (expected :name:)");
+				}
+				if (!seen.add(line)) {
+					throw new IllegalStateException(listFile + ":" + lineNumber + ": duplicate emoji '" + line + "'");
+				}
+				names.add(line);
+			}
+		}
+		return names;
+	}
+	
+	/**
+	 * Reads and validates the Unicode emoji sequences from the Unicode emoji list.
+	 *
+	 * @param unicodeFile The Unicode emoji list.
+	 * @param names The emoji names, in list order.
+	 * @param unicode The list to add the code point sequences to.
+	 * @param unicodeEmojis The list to add the position of each sequence's emoji to.
+	 * @throws IOException If the Unicode emoji list can't be read.
+	 */
+	static void readUnicode(File unicodeFile, List<String> names, List<int[]> unicode, List<Integer> unicodeEmojis) throws IOException {
+		Map<String, Integer> positions = new HashMap<>();
+		for (int i = 0; i < names.size(); i++) {
+			positions.put(names.get(i), i);
+		}
+		Set<String> seen = new HashSet<>();
+		
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(unicodeFile), StandardCharsets.UTF_8))) {
+			String line;
+			int lineNumber = 0;
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				if (line.startsWith("#") || line.trim().isEmpty()) { // Ignored lines
+					continue;
+				}
+				String[] parts = line.trim().split("\\s+");
+				Integer position = positions.get(parts[0]);
+				if (position == null) {
+					throw new IllegalStateException(unicodeFile + ":" + lineNumber + ": '" + parts[0] + "' isn't in the emoji list");
+				}
+				if (parts.length < 2 || parts.length > 256) {
+					throw new IllegalStateException(unicodeFile + ":" + lineNumber + ": expected an emoji name and 1-255 code points");
+				}
+				
+				int[] sequence = new int[parts.length - 1];
+				for (int i = 0; i < sequence.length; i++) {
+					int codePoint;
+					try {
+						codePoint = Integer.parseInt(parts[i + 1], 16);
+					} catch (NumberFormatException e) {
+						codePoint = -1;
+					}
+					if (!Character.isValidCodePoint(codePoint)) {
+						throw new IllegalStateException(unicodeFile + ":" + lineNumber + ": '" + parts[i + 1] + "' isn't a code point");
+					}
+					if (codePoint == 0xFE0E || codePoint == 0xFE0F || (codePoint >= 0x1F3FB && codePoint <= 0x1F3FF)) {
+						throw new IllegalStateException(unicodeFile + ":" + lineNumber + ": leave out variation selectors and skin tone modifiers, they're skipped while matching");
+					}
+					sequence[i] = codePoint;
+				}
+				if (!seen.add(Arrays.toString(sequence))) {
+					throw new IllegalStateException(unicodeFile + ":" + lineNumber + ": duplicate sequence " + String.join(" ", Arrays.copyOfRange(parts, 1, parts.length)));
+				}
+				unicode.add(sequence);
+				unicodeEmojis.add(position);
+			}
+		}
+	}
+	
+	/**
+	 * Checks that the resource pack has a glyph page for every emoji character.
+	 *
+	 * @param count The number of emojis.
+	 * @param fontDirectory The resource pack's font directory.
+	 */
+	static void validatePages(int count, File fontDirectory) {
+		if (FIRST_EMOJI + count - 1 > Character.MAX_VALUE) {
+			throw new IllegalStateException("Too many emojis (" + count + ") to fit after " + toHex(FIRST_EMOJI));
+		}
+		
+		int firstPage = FIRST_EMOJI >>> 8;
+		int lastPage = (FIRST_EMOJI + count - 1) >>> 8;
+		for (int page = firstPage; page <= lastPage; page++) {
+			File pageFile = new File(fontDirectory, String.format("unicode_page_%02x.png", page));
+			if (!pageFile.isFile()) {
+				throw new IllegalStateException("The emoji list needs glyph page " + pageFile.getName() + " (emojis up to " + toHex((char) (FIRST_EMOJI + count - 1)) + "), but it isn't in " + fontDirectory);
+			}
+		}
+	}
+	
+	/**
+	 * Writes the emoji index.
+	 *
+	 * @param names The emoji names, in list order.
+	 * @param unicode The Unicode emoji sequences.
+	 * @param unicodeEmojis The position in the list of the emoji each Unicode sequence stands for.
+	 * @param output The index file to write.
+	 * @throws IOException If the index can't be written.
+	 */
+	static void writeIndex(List<String> names, List<int[]> unicode, List<Integer> unicodeEmojis, File output) throws IOException {
+		File parent = output.getParentFile();
+		if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+			throw new IOException("Couldn't create " + parent);
+		}
+		
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(output)))) {
+			out.writeInt(MAGIC);
+			out.writeShort(VERSION);
+			out.writeChar(FIRST_EMOJI);
+			out.writeInt(names.size());
+			for (String name : names) {
+				out.writeUTF(name);
+			}
+			out.writeInt(unicode.size());
+			for (int i = 0; i < unicode.size(); i++) {
+				out.writeShort(unicodeEmojis.get(i));
+				out.writeByte(unicode.get(i).length);
+				for (int codePoint : unicode.get(i)) {
+					out.writeInt(codePoint);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Formats the specified character as a code point, i.e. U+5A00.
+	 *
+	 * @param c The character.
+	 * @return The formatted character.
+	 */
+	private static String toHex(char c) {
+		return String.format("U+%04X", (int) c);
+	}
+}
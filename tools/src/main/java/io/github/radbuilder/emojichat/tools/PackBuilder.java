@@ -0,0 +1,156 @@
+package io.github.radbuilder.emojichat.tools;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Zips the ResourcePack directory (UKSRTemoji) into a deterministic archive and writes its SHA-1 hash, so the plugin
+ * can send the hash with the pack without hashing it at runtime.
+ * <p>
+ * Usage: {@code PackBuilder <pack directory> <output zip> <output hash file>}
+ * <p>
+ * The same directory always gives the same bytes: entries are sorted by path, every entry gets the same timestamp, and
+ * everything is compressed at the highest level. The hash file holds the lower-case hex SHA-1 and nothing else.
+ *
+ * @author RadBuilder
+ * @version 1.8.1
+ * @since 1.8.1
+ */
+public class PackBuilder {
+	/**
+	 * The timestamp every entry gets. Zip timestamps are stored as local time, so this is fixed in the local time zone
+	 * to give the same bytes everywhere.
+	 */
+	private static final long ENTRY_TIME = LocalDateTime.of(2018, 1, 1, 0, 0).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+	
+	public static void main(String[] args) throws IOException {
+		if (args.length != 3) {
+			throw new IllegalArgumentException("Usage: PackBuilder <pack directory> <output zip> <output hash file>");
+		}
+		
+		File packDirectory = new File(args[0]);
+		if (!new File(packDirectory, "pack.mcmeta").isFile()) {
+			throw new IllegalStateException(packDirectory + " isn't a ResourcePack (no pack.mcmeta)");
+		}
+		
+		List<String> paths = new ArrayList<>();
+		listFiles(packDirectory, "", paths);
+		Collections.sort(paths);
+		byte[] sha1 = writeZip(packDirectory, paths, new File(args[1]));
+		String hash = toHex(sha1);
+		writeHash(hash, new File(args[2]));
+		System.out.println("[EmojiChat] Packed " + paths.size() + " files into " + args[1] + " (SHA-1 " + hash + ")");
+	}
+	
+	/**
+	 * Lists the files in the specified directory and its subdirectories.
+	 *
+	 * @param directory The directory to list.
+	 * @param prefix The zip path of the directory, i.e. assets/minecraft/.
+	 * @param paths The list to add the zip paths of the files to.
+	 */
+	static void listFiles(File directory, String prefix, List<String> paths) {
+		File[] files = directory.listFiles();
+		if (files == null) {
+			throw new IllegalStateException("Couldn't list " + directory);
+		}
+		for (File file : files) {
+			if (file.isDirectory()) {
+				listFiles(file, prefix + file.getName() + "/", paths);
+			} else if (!file.getName().startsWith(".")) { // Skip .DS_Store and friends
+				paths.add(prefix + file.getName());
+			}
+		}
+	}
+	
+	/**
+	 * Writes the zip.
+	 *
+	 * @param packDirectory The ResourcePack directory.
+	 * @param paths The zip paths of the files to add, sorted.
+	 * @param output The zip file to write.
+	 * @return The SHA-1 hash of the written zip.
+	 * @throws IOException If a file can't be read or the zip can't be written.
+	 */
+	static byte[] writeZip(File packDirectory, List<String> paths, File output) throws IOException {
+		createParent(output);
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-1 isn't available", e);
+		}
+		
+		try (OutputStream file = new BufferedOutputStream(new FileOutputStream(output));
+			 ZipOutputStream zip = new ZipOutputStream(new DigestOutputStream(file, digest))) {
+			zip.setLevel(Deflater.BEST_COMPRESSION);
+			for (String path : paths) {
+				ZipEntry entry = new ZipEntry(path);
+				entry.setTime(ENTRY_TIME);
+				zip.putNextEntry(entry);
+				Files.copy(new File(packDirectory, path).toPath(), zip);
+				zip.closeEntry();
+			}
+		}
+		return digest.digest();
+	}
+	
+	/**
+	 * Writes the hash file.
+	 *
+	 * @param hash The hex SHA-1 hash.
+	 * @param output The hash file to write.
+	 * @throws IOException If the hash file can't be written.
+	 */
+	static void writeHash(String hash, File output) throws IOException {
+		createParent(output);
+		try (Writer writer = new OutputStreamWriter(new FileOutputStream(output), StandardCharsets.US_ASCII)) {
+			writer.write(hash);
+		}
+	}
+	
+	/**
+	 * Creates the parent directory of the specified file if it doesn't exist yet.
+	 *
+	 * @param file The file.
+	 * @throws IOException If the directory can't be created.
+	 */
+	private static void createParent(File file) throws IOException {
+		File parent = file.getParentFile();
+		if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+			throw new IOException("Couldn't create " + parent);
+		}
+	}
+	
+	/**
+	 * Formats the specified bytes as lower-case hex.
+	 *
+	 * @param bytes The bytes to format.
+	 * @return The hex string.
+	 */
+	private static String toHex(byte[] bytes) {
+		StringBuilder builder = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return builder.toString();
+	}
+}